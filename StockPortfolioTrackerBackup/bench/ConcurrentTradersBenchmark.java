@@ -0,0 +1,83 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent traders buying against one shared account, comparing the old three-call
+ * BUY path (read balance, write balance, buyStock) with {@link DatabaseConnection#executeBuy}.
+ *
+ * Every trader records the trades it believes were filled. A lost update is a filled
+ * trade whose debit is missing from the final balance.
+ *
+ * Run with: ant bench-traders  (-Dbench.threads=N -Dbench.tradesPerThread=N)
+ */
+public class ConcurrentTradersBenchmark {
+
+    private static final String USER = "admin";
+    private static final double PRICE = 1.0;
+    private static final StockRow STOCK = new StockRow("Apple Inc.", "Technology", "AAPL", PRICE, 1.45, 230.0);
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("bench.threads", 8);
+        int tradesPerThread = Integer.getInteger("bench.tradesPerThread", 500);
+        System.setProperty("stocks.pool.size", String.valueOf(threads));
+
+        System.out.printf("%d traders x %d buys, profile %s%n", threads, tradesPerThread,
+                PragmaProfile.fromName(System.getProperty("stocks.db.profile")).name().toLowerCase());
+        System.out.printf("%-10s %12s %10s %14s%n", "path", "trades/sec", "filled", "lost updates");
+        report("legacy", run(threads, tradesPerThread, ConcurrentTradersBenchmark::legacyBuy));
+        report("atomic", run(threads, tradesPerThread,
+                () -> DatabaseConnection.executeBuy(USER, STOCK) == TradeResult.FILLED));
+    }
+
+    // The BUY handler before single-transaction trades
+    private static boolean legacyBuy() {
+        double balance = DatabaseConnection.getUserBalance(USER);
+        if (balance < PRICE) return false;
+        DatabaseConnection.updateUserBalance(USER, balance - PRICE);
+        DatabaseConnection.buyStock(STOCK.company(), STOCK.industry(), STOCK.symbol(), PRICE, STOCK.dayChange(), STOCK.gainLoss());
+        return true;
+    }
+
+    private interface Trade {
+        boolean buy();
+    }
+
+    private record Result(double tradesPerSec, long filled, long lost) {
+    }
+
+    private static Result run(int threads, int tradesPerThread, Trade trade) throws Exception {
+        Path dir = Files.createTempDirectory("stocks-traders-");
+        File db = dir.resolve("stocks.db").toFile();
+        DatabaseConnection.configure("jdbc:sqlite:" + db.getAbsolutePath(),
+                PragmaProfile.fromName(System.getProperty("stocks.db.profile")));
+        DatabaseConnection.Database();
+
+        double opening = DatabaseConnection.getUserBalance(USER);
+        AtomicLong filled = new AtomicLong();
+        List<Thread> traders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            traders.add(new Thread(() -> {
+                for (int i = 0; i < tradesPerThread; i++) {
+                    if (trade.buy()) filled.incrementAndGet();
+                }
+            }, "trader-" + t));
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : traders) t.start();
+        for (Thread t : traders) t.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        double closing = DatabaseConnection.getUserBalance(USER);
+        long debited = Math.round((opening - closing) / PRICE);
+        return new Result(filled.get() / elapsed, filled.get(), filled.get() - debited);
+    }
+
+    private static void report(String name, Result r) {
+        System.out.printf("%-10s %12.1f %10d %14d%n", name, r.tradesPerSec, r.filled, r.lost);
+    }
+}
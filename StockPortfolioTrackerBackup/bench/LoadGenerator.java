@@ -0,0 +1,237 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Headless multi-user load against one stocks.db through the DatabaseConnection API.
+ *
+ * Every virtual user signs up and logs in, then runs a weighted mix of operations
+ * until the run ends. Each operation is its own task, so thousands of users only
+ * need as many threads as are busy at once: one virtual thread per task on Java 21+,
+ * bench.carriers platform threads on 17. Reports throughput and p50/p99/p999 latency
+ * per operation, and the SQLITE_BUSY count seen by the pool.
+ *
+ * Run with: ant bench-load  (-Dbench.users=N -Dbench.seconds=N -Dbench.thinkMillis=N
+ *   -Dbench.mix=buy=40,sell=30,balance=20,history=10,historyFull=0 -Dbench.carriers=N
+ *   -Dbench.db=path/to/stocks.db to load an existing file instead of a temporary one)
+ */
+public class LoadGenerator {
+
+    private static final String PASSWORD = "load";
+    private static final int HISTORY_PAGE = 200; // what HistoryUI fetches per page
+
+    private enum Op { SIGNUP, LOGIN, BUY, SELL, BALANCE, HISTORY, HISTORY_FULL }
+
+    private static final class OpStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private final Map<Op, OpStats> stats = new LinkedHashMap<>();
+    private final Op[] mix;
+    private final int[] cumulativeWeights;
+    private final List<StockRow> market;
+    private final long thinkMillis;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(Threads.daemonFactory("load-timer"));
+    private volatile long deadlineNanos;
+
+    private LoadGenerator(Map<Op, Integer> weights, List<StockRow> market, long thinkMillis, ExecutorService executor) {
+        for (Op op : Op.values()) {
+            stats.put(op, new OpStats());
+        }
+        List<Op> ops = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Op, Integer> w : weights.entrySet()) {
+            if (w.getValue() <= 0) continue;
+            total += w.getValue();
+            ops.add(w.getKey());
+            cumulative.add(total);
+        }
+        if (ops.isEmpty()) throw new IllegalArgumentException("bench.mix has no positive weights");
+        this.mix = ops.toArray(new Op[0]);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+        this.market = market;
+        this.thinkMillis = thinkMillis;
+        this.executor = executor;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("bench.users", 100);
+        int seconds = Integer.getInteger("bench.seconds", 30);
+        int carriers = Integer.getInteger("bench.carriers", 64);
+        long thinkMillis = Long.getLong("bench.thinkMillis", 0L);
+        Map<Op, Integer> weights = parseMix(System.getProperty("bench.mix", "buy=40,sell=30,balance=20,history=10,historyFull=0"));
+
+        String dbPath = System.getProperty("bench.db");
+        Path tempDir = null;
+        if (dbPath == null) {
+            tempDir = Files.createTempDirectory("stocks-load-");
+            dbPath = tempDir.resolve("stocks.db").toString();
+        }
+        PragmaProfile profile = PragmaProfile.fromName(System.getProperty("stocks.db.profile"));
+        DatabaseConnection.configure("jdbc:sqlite:" + new File(dbPath).getAbsolutePath(), profile);
+        DatabaseConnection.Database();
+
+        ExecutorService executor = Threads.newPerTaskExecutor("load-user", carriers);
+        System.out.printf("%d users for %d s, %s, profile %s, mix %s%n", users, seconds,
+                Threads.virtualThreadsAvailable() ? "virtual threads" : carriers + " platform threads",
+                profile.name().toLowerCase(), weights);
+
+        LoadGenerator load = new LoadGenerator(weights, DatabaseConnection.fetchStocks(), thinkMillis, executor);
+        long busyBefore = DatabaseConnection.poolStats().busyErrors();
+        long start = System.nanoTime();
+        load.run(users, seconds);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        HistoryJournal.flushShared();
+
+        load.report(elapsed, DatabaseConnection.poolStats().busyErrors() - busyBefore);
+        System.out.println(DatabaseConnection.poolStats());
+        System.out.println(HistoryJournal.shared().stats());
+
+        executor.shutdownNow();
+        load.timer.shutdownNow();
+        if (tempDir != null) {
+            HistoryJournal.closeShared();
+            try (var files = Files.walk(tempDir)) {
+                files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            String name = kv[0].trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+            weights.put(Op.valueOf(name), Integer.parseInt(kv[1].trim()));
+        }
+        return weights;
+    }
+
+    // ------------------------
+    // VIRTUAL USERS
+    // ------------------------
+    private void run(int users, int seconds) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(users);
+        String prefix = "vu" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < users; i++) {
+            String username = prefix + i;
+            executor.execute(() -> {
+                timed(Op.SIGNUP, () -> DatabaseConnection.addUser(username, PASSWORD));
+                timed(Op.LOGIN, () -> DatabaseConnection.checkLogin(username, PASSWORD));
+                next(username, done);
+            });
+        }
+        done.await();
+    }
+
+    // One operation per task, then hand the user back to the executor (after think time)
+    private void next(String username, CountDownLatch done) {
+        if (System.nanoTime() >= deadlineNanos) {
+            done.countDown();
+            return;
+        }
+        Runnable step = () -> {
+            perform(username, pick());
+            next(username, done);
+        };
+        if (thinkMillis > 0) {
+            timer.schedule(() -> executor.execute(step), thinkMillis, TimeUnit.MILLISECONDS);
+        } else {
+            executor.execute(step);
+        }
+    }
+
+    private Op pick() {
+        int r = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) return mix[i];
+        }
+        return mix[mix.length - 1];
+    }
+
+    private void perform(String username, Op op) {
+        StockRow stock = market.get(ThreadLocalRandom.current().nextInt(market.size()));
+        switch (op) {
+            case BUY:
+                timed(op, () -> DatabaseConnection.executeBuy(username, stock) != TradeResult.FAILED);
+                break;
+            case SELL:
+                timed(op, () -> DatabaseConnection.executeSell(username, stock) != TradeResult.FAILED);
+                break;
+            case BALANCE:
+                timed(op, () -> DatabaseConnection.getUserBalance(username) >= 0);
+                break;
+            case HISTORY:
+                timed(op, () -> DatabaseConnection.fetchHistoryPage(Long.MAX_VALUE, HISTORY_PAGE) != null);
+                break;
+            case HISTORY_FULL:
+                timed(op, () -> {
+                    DatabaseConnection.loadHistoryToTable(new DefaultTableModel(0, 8));
+                    return true;
+                });
+                break;
+            default:
+                throw new IllegalStateException("Not a mix operation: " + op);
+        }
+    }
+
+    private interface Call {
+        boolean ok();
+    }
+
+    private void timed(Op op, Call call) {
+        OpStats s = stats.get(op);
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = call.ok();
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+        s.latency.record(System.nanoTime() - start);
+        if (!ok) s.errors.increment();
+    }
+
+    // ------------------------
+    // REPORT
+    // ------------------------
+    private void report(double elapsed, long busy) {
+        System.out.printf("%-13s %10s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/sec", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long errors = 0;
+        for (Map.Entry<Op, OpStats> e : stats.entrySet()) {
+            LatencyHistogram h = e.getValue().latency;
+            if (h.count() == 0) continue;
+            all.add(h);
+            errors += e.getValue().errors.sum();
+            row(e.getKey().name().toLowerCase(), h, e.getValue().errors.sum(), elapsed);
+        }
+        row("total", all, errors, elapsed);
+        System.out.printf("SQLITE_BUSY: %d%n", busy);
+    }
+
+    private static void row(String name, LatencyHistogram h, long errors, double elapsed) {
+        System.out.printf("%-13s %10d %10.1f %8d %10.3f %10.3f %10.3f %10.3f%n",
+                name, h.count(), h.count() / elapsed, errors,
+                h.percentileNanos(50) / 1e6, h.percentileNanos(99) / 1e6, h.percentileNanos(99.9) / 1e6,
+                h.maxNanos() / 1e6);
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableRowSorter;
+
+/**
+ * Live updates of a large market table with the view sorted by price.
+ *
+ * Fills a {@link StockTableModel} with bench.rows synthetic instruments in a JTable,
+ * sorts it by price descending and then runs bench.frames frames, each changing the
+ * price of bench.changed random rows the way Stock.showTicks does. Reports the time per
+ * frame (model update plus re-sort) for {@link IndexedRowSorter}, with and without an
+ * industry and price-range filter, and for a TableRowSorter that sorts on updates.
+ * TableRowSorter re-sorts the whole table for every cell event, so it only runs
+ * bench.legacyFrames frames. Every tenth frame the indexed view is checked against a
+ * plain sort of the model.
+ *
+ * Runs headless; no database is needed.
+ *
+ * Run with: ant bench-sorter  (-Dbench.rows=N -Dbench.changed=N -Dbench.frames=N -Dbench.legacyFrames=N)
+ */
+public class MarketTableBenchmark {
+
+    private static final String[] INDUSTRIES = {
+        "Technology", "Finance", "Healthcare", "Energy", "Retail", "Industrials", "Utilities", "Materials"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int rows = Integer.getInteger("bench.rows", 50_000);
+        int changed = Integer.getInteger("bench.changed", 2_000);
+        int frames = Integer.getInteger("bench.frames", 300);
+        int legacyFrames = Integer.getInteger("bench.legacyFrames", 3);
+        System.setProperty("java.awt.headless", "true");
+        System.out.printf("%d rows, %d price changes per frame%n", rows, changed);
+
+        SwingUtilities.invokeAndWait(() -> {
+            run("IndexedRowSorter", rows, changed, frames, false, false);
+            run("IndexedRowSorter + filter", rows, changed, frames, true, false);
+            run("TableRowSorter", rows, changed, legacyFrames, false, true);
+        });
+    }
+
+    private static void run(String name, int rows, int changed, int frames, boolean filter, boolean legacy) {
+        Random random = new Random(42);
+        StockTableModel model = new StockTableModel();
+        List<StockRow> snapshot = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            snapshot.add(new StockRow("Company " + i, INDUSTRIES[i % INDUSTRIES.length], "S" + i,
+                    10 + random.nextInt(100_000) / 100.0, 0, 0));
+        }
+        model.apply(snapshot);
+
+        JTable table = new JTable(model);
+        IndexedRowSorter indexed = null;
+        if (legacy) {
+            TableRowSorter<StockTableModel> sorter = new TableRowSorter<>(model);
+            sorter.setSortsOnUpdates(true);
+            table.setRowSorter(sorter);
+        } else {
+            indexed = new IndexedRowSorter(model);
+            table.setRowSorter(indexed);
+        }
+        long start = System.nanoTime();
+        table.getRowSorter().setSortKeys(List.of(new RowSorter.SortKey(StockTableModel.PRICE, SortOrder.DESCENDING)));
+        if (filter) {
+            indexed.setCategoryFilter(StockTableModel.INDUSTRY, "Technology");
+            indexed.setRangeFilter(StockTableModel.PRICE, 100, 600);
+        }
+        long firstSort = System.nanoTime() - start;
+
+        long[] times = new long[frames];
+        for (int frame = 0; frame < frames; frame++) {
+            start = System.nanoTime();
+            for (int i = 0; i < changed; i++) {
+                StockRow r = model.getRow(random.nextInt(rows));
+                double price = Math.max(0.01, Math.round(r.price() * (1 + random.nextGaussian() * 0.002) * 100) / 100.0);
+                model.update(new StockRow(r.company(), r.industry(), r.symbol(), price, r.dayChange(), r.gainLoss()));
+            }
+            if (indexed != null) indexed.flush();
+            times[frame] = System.nanoTime() - start;
+            if (indexed != null && frame % 10 == 0) check(table, model, filter);
+        }
+        Arrays.sort(times);
+        System.out.printf("%-26s view %6d rows  first sort %7.1f ms  frame p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms%n",
+                name, table.getRowCount(), firstSort / 1e6, times[frames / 2] / 1e6,
+                times[Math.min(frames - 1, frames * 99 / 100)] / 1e6, times[frames - 1] / 1e6);
+    }
+
+    // The table's view must equal a plain sort (price descending, ties by model row) of the passing rows
+    private static void check(JTable table, StockTableModel model, boolean filter) {
+        List<Integer> expected = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            StockRow r = model.getRow(row);
+            if (filter && (!r.industry().equals("Technology") || r.price() < 100 || r.price() > 600)) continue;
+            expected.add(row);
+        }
+        expected.sort(Comparator.<Integer>comparingDouble(row -> model.getRow(row).price()).thenComparing(row -> row));
+        int count = expected.size();
+        if (table.getRowCount() != count) throw new IllegalStateException("view has " + table.getRowCount() + " rows, expected " + count);
+        for (int view = 0; view < count; view++) {
+            int row = expected.get(count - 1 - view);
+            if (table.convertRowIndexToModel(view) != row || table.convertRowIndexToView(row) != view) {
+                throw new IllegalStateException("view row " + view + " is model row " + table.convertRowIndexToModel(view) + ", expected " + row);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Compares trades/sec and read latency for each {@link PragmaProfile}.
+ *
+ * One writer thread alternates buyStock/removeOwnedStock with updateStockPrices while
+ * a reader thread loads the market and history tables, the same mix the Stock frame
+ * produces. Every profile runs against its own temporary stocks.db.
+ *
+ * Run with: ant bench-profiles  (-Dbench.seconds=N to change the run length)
+ */
+public class PragmaProfileBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = Integer.getInteger("bench.seconds", 5);
+
+        System.out.printf("%-12s %12s %12s %12s %12s%n", "profile", "trades/sec", "read p50 ms", "read p99 ms", "reads");
+        for (PragmaProfile profile : PragmaProfile.values()) {
+            Result r = run(profile, seconds);
+            System.out.printf("%-12s %12.1f %12.3f %12.3f %12d%n",
+                    profile.name().toLowerCase(), r.tradesPerSec, r.readP50Millis, r.readP99Millis, r.reads);
+        }
+    }
+
+    private static Result run(PragmaProfile profile, int seconds) throws Exception {
+        Path dir = Files.createTempDirectory("stocks-bench-");
+        File db = dir.resolve("stocks.db").toFile();
+        DatabaseConnection.configure("jdbc:sqlite:" + db.getAbsolutePath(), profile);
+        DatabaseConnection.Database();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        long[] trades = new long[1];
+
+        Thread writer = new Thread(() -> {
+            long n = 0;
+            while (running.get()) {
+                DatabaseConnection.buyStock("Apple Inc.", "Technology", "AAPL", 178.23, 1.45, 230.0);
+                DatabaseConnection.removeOwnedStock("Apple Inc.", "Technology", "AAPL", 178.23, 1.45, 230.0);
+                n += 2;
+                if (n % 20 == 0) DatabaseConnection.updateStockPrices();
+            }
+            trades[0] = n;
+        }, "bench-writer");
+
+        long[] latencies = new long[1 << 20];
+        int[] reads = new int[1];
+        Thread reader = new Thread(() -> {
+            DefaultTableModel stocks = new DefaultTableModel(new String[]{"c", "i", "s", "p", "d", "g"}, 0);
+            DefaultTableModel history = new DefaultTableModel(new String[]{"c", "i", "s", "p", "d", "g", "a", "t"}, 0);
+            int i = 0;
+            while (running.get() && i < latencies.length) {
+                long start = System.nanoTime();
+                DatabaseConnection.loadDataToTable(stocks);
+                DatabaseConnection.loadHistoryToTable(history);
+                latencies[i++] = System.nanoTime() - start;
+                // Keep the history table from dominating the read as it grows
+                if (i % 50 == 0) DatabaseConnection.clearHistory();
+            }
+            reads[0] = i;
+        }, "bench-reader");
+
+        long start = System.nanoTime();
+        writer.start();
+        reader.start();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        writer.join();
+        reader.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = Arrays.copyOf(latencies, reads[0]);
+        Arrays.sort(sorted);
+        deleteQuietly(dir);
+        return new Result(trades[0] / elapsed, percentile(sorted, 0.50), percentile(sorted, 0.99), reads[0]);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, idx)] / 1e6;
+    }
+
+    private static void deleteQuietly(Path dir) {
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private record Result(double tradesPerSec, double readP50Millis, double readP99Millis, int reads) {
+    }
+}
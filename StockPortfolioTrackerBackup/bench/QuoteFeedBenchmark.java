@@ -0,0 +1,148 @@
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fan-out of {@link QuoteFeed} to many local SSE subscribers.
+ *
+ * Starts the price engine (bench.hz ticks/sec) and the feed against a temporary
+ * stocks.db, then opens bench.subscribers connections to /api/stream from one selector
+ * thread. bench.slowPercent of them stop reading after the first event, so their socket
+ * buffers fill and the feed has to conflate. Reports delivered events/sec,
+ * tick-to-receive latency for the readers that keep up, the engine's achieved tick
+ * rate and the time the engine thread spent publishing into the ring.
+ *
+ * Run with: ant bench-feed  (-Dbench.subscribers=N -Dbench.slowPercent=N -Dbench.hz=N -Dbench.seconds=N)
+ */
+public class QuoteFeedBenchmark {
+
+    private static final class Client {
+        final boolean slow;
+        final StringBuilder pending = new StringBuilder();
+        boolean seenEvent;
+
+        Client(boolean slow) {
+            this.slow = slow;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int subscribers = Integer.getInteger("bench.subscribers", 2000);
+        int slowPercent = Integer.getInteger("bench.slowPercent", 10);
+        int hz = Integer.getInteger("bench.hz", 100);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        System.setProperty("java.awt.headless", "true");
+
+        Path dir = Files.createTempDirectory("stocks-feed-");
+        File db = dir.resolve("stocks.db").toFile();
+        System.setProperty("stocks.ticks.dir", dir.resolve("ticks").toString());
+        System.setProperty("stocks.engine.hz", Integer.toString(hz));
+        DatabaseConnection.configure("jdbc:sqlite:" + db.getAbsolutePath(),
+                PragmaProfile.fromName(System.getProperty("stocks.db.profile")));
+        AppBootstrap.start().awaitStorage();
+
+        PriceEngine engine = PriceEngine.shared();
+        LongAdder ticks = new LongAdder();
+        engine.addListener((time, prices) -> ticks.increment());
+        QuoteFeed feed = QuoteFeed.startShared(0);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), feed.port());
+        System.out.printf("%d subscribers (%d%% slow) at %d Hz for %d s, %d symbols, %d feed threads%n",
+                subscribers, slowPercent, hz, seconds, engine.symbolCount(),
+                Integer.getInteger("stocks.feed.threads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+        Selector selector = Selector.open();
+        byte[] request = "GET /api/stream HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < subscribers; i++) {
+            boolean slow = i % 100 < slowPercent;
+            SocketChannel channel = SocketChannel.open();
+            if (slow) channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            channel.connect(address);
+            channel.write(ByteBuffer.wrap(request));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Client(slow));
+        }
+
+        // Let every subscriber get its snapshot and drain the backlog from connecting
+        pump(selector, System.nanoTime() + 2_000_000_000L, null);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long ticksBefore = ticks.sum();
+        long start = System.nanoTime();
+        long events = pump(selector, start + seconds * 1_000_000_000L, latency);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("engine ticks/sec     %10.1f  (target %d)%n", (ticks.sum() - ticksBefore) / elapsed, hz);
+        System.out.printf("events received/sec  %10.1f%n", events / elapsed);
+        System.out.printf("receive latency ms   p50 %.3f  p99 %.3f  max %.3f%n",
+                latency.percentileNanos(50) / 1e6, latency.percentileNanos(99) / 1e6, latency.maxNanos() / 1e6);
+        OperationMetrics.Snapshot publish = OperationMetrics.operation("quoteFeed.publish").snapshot();
+        System.out.printf("engine publish ms    p50 %.3f  p99 %.3f  max %.3f%n",
+                publish.p50Millis(), publish.p99Millis(), publish.maxMillis());
+        System.out.println("feed: " + feed.stats());
+
+        feed.close();
+        engine.stop();
+        HistoryJournal.closeShared();
+        try (var files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        System.exit(0);
+    }
+
+    // Reads every subscriber until the deadline; returns the number of quote events
+    private static long pump(Selector selector, long deadline, LatencyHistogram latency) throws java.io.IOException {
+        long events = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (System.nanoTime() < deadline) {
+            selector.select(100);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Client client = (Client) key.attachment();
+                buffer.clear();
+                int n = ((SocketChannel) key.channel()).read(buffer);
+                if (n < 0) {
+                    key.cancel();
+                    continue;
+                }
+                client.pending.append(new String(buffer.array(), 0, n, StandardCharsets.UTF_8));
+                int end;
+                while ((end = client.pending.indexOf("\n\n")) >= 0) {
+                    String event = client.pending.substring(0, end);
+                    client.pending.delete(0, end + 2);
+                    if (!event.startsWith("event: quotes")) continue;
+                    events++;
+                    if (latency != null) latency.record(latencyNanos(event));
+                    client.seenEvent = true;
+                }
+                if (client.slow && client.seenEvent) key.interestOps(0); // stop reading
+            }
+        }
+        return events;
+    }
+
+    // Time from the newest quote's tick to now, from the event's "time" fields
+    private static long latencyNanos(String event) {
+        long newest = 0;
+        int at = event.indexOf("\"quotes\"");
+        while ((at = event.indexOf("\"time\":", at)) >= 0) {
+            at += 7;
+            int end = at;
+            while (end < event.length() && Character.isDigit(event.charAt(end))) end++;
+            newest = Math.max(newest, Long.parseLong(event.substring(at, end)));
+        }
+        return Math.max(0, System.currentTimeMillis() - newest) * 1_000_000L;
+    }
+}
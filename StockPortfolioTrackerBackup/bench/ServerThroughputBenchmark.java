@@ -0,0 +1,141 @@
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests/sec and latency of {@link PortfolioServer} over localhost.
+ *
+ * Starts the server in this JVM on a free port against a temporary stocks.db, then
+ * bench.clients client threads send a read-heavy mix (quotes, balance, positions,
+ * history pages and trades) for bench.seconds through java.net.http.
+ *
+ * Run with: ant bench-server  (-Dbench.clients=N -Dbench.seconds=N)
+ */
+public class ServerThroughputBenchmark {
+
+    private static final String USER = "admin";
+    private static final String PASSWORD = "admin123"; // seeded by SchemaMigrations
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "TSLA", "KO", "JPM", "AMZN"};
+
+    private record Endpoint(String name, int weight) {
+    }
+
+    private static final Endpoint[] MIX = {
+            new Endpoint("quotes", 50),
+            new Endpoint("balance", 20),
+            new Endpoint("positions", 15),
+            new Endpoint("trade", 10),
+            new Endpoint("history", 5)
+    };
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("bench.clients", 32);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        System.setProperty("java.awt.headless", "true");
+
+        Path dir = Files.createTempDirectory("stocks-server-");
+        File db = dir.resolve("stocks.db").toFile();
+        DatabaseConnection.configure("jdbc:sqlite:" + db.getAbsolutePath(),
+                PragmaProfile.fromName(System.getProperty("stocks.db.profile")));
+        AppBootstrap.start().awaitStorage();
+
+        PortfolioServer server = new PortfolioServer(0);
+        server.start();
+        String base = "http://localhost:" + server.port() + "/api/";
+        HttpClient http = HttpClient.newHttpClient();
+        System.out.printf("%d clients for %d s against %s (%s)%n", clients, seconds, base,
+                Threads.virtualThreadsAvailable() ? "virtual threads" : "platform threads");
+
+        LatencyHistogram[] latency = new LatencyHistogram[MIX.length];
+        LongAdder[] errors = new LongAdder[MIX.length];
+        for (int i = 0; i < MIX.length; i++) {
+            latency[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int e = pick(random.nextInt(100));
+                    HttpRequest request = request(base, MIX[e].name(), USER, SYMBOLS[random.nextInt(SYMBOLS.length)], random);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() >= 500) errors[e].increment();
+                    } catch (Exception ex) {
+                        errors[e].increment();
+                    }
+                    latency[e].record(System.nanoTime() - start);
+                }
+            }, "client-" + c));
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-10s %10s %10s %8s %10s %10s %10s%n", "endpoint", "requests", "req/sec", "errors", "p50 ms", "p99 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        for (int i = 0; i < MIX.length; i++) {
+            all.add(latency[i]);
+            allErrors += errors[i].sum();
+            row(MIX[i].name(), latency[i], errors[i].sum(), elapsed);
+        }
+        row("total", all, allErrors, elapsed);
+
+        server.stop();
+        HistoryJournal.closeShared();
+        PriceEngine.shared().stop();
+        try (var files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        System.exit(0);
+    }
+
+    private static int pick(int roll) {
+        int cumulative = 0;
+        for (int i = 0; i < MIX.length; i++) {
+            cumulative += MIX[i].weight();
+            if (roll < cumulative) return i;
+        }
+        return MIX.length - 1;
+    }
+
+    private static HttpRequest request(String base, String endpoint, String user, String symbol, ThreadLocalRandom random) {
+        switch (endpoint) {
+            case "trade":
+                String side = random.nextBoolean() ? "buy" : "sell";
+                return HttpRequest.newBuilder(URI.create(base + "trade"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("user=" + user + "&password=" + PASSWORD
+                                + "&symbol=" + symbol + "&side=" + side))
+                        .build();
+            case "balance":
+            case "positions":
+                return HttpRequest.newBuilder(URI.create(base + endpoint + "?user=" + user + "&password=" + PASSWORD)).GET().build();
+            case "history":
+                return HttpRequest.newBuilder(URI.create(base + "history?limit=100")).GET().build();
+            default:
+                return HttpRequest.newBuilder(URI.create(base + endpoint)).GET().build();
+        }
+    }
+
+    private static void row(String name, LatencyHistogram h, long errors, double elapsed) {
+        System.out.printf("%-10s %10d %10.1f %8d %10.3f %10.3f %10.3f%n",
+                name, h.count(), h.count() / elapsed, errors,
+                h.percentileNanos(50) / 1e6, h.percentileNanos(99) / 1e6, h.maxNanos() / 1e6);
+    }
+}
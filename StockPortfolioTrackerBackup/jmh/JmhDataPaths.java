@@ -0,0 +1,81 @@
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * {@link stocksbench.DataPaths} backed by the real DatabaseConnection.
+ */
+public class JmhDataPaths implements stocksbench.DataPaths {
+
+    private static final String USER = "admin";
+    private static final String PASSWORD = "admin123";
+
+    private final DefaultTableModel history =
+            new DefaultTableModel(new String[]{"c", "i", "s", "p", "d", "g", "a", "t"}, 0);
+
+    @Override
+    public void open(Path dir, int historyRows) throws SQLException {
+        File db = dir.resolve("stocks.db").toFile();
+        DatabaseConnection.configure("jdbc:sqlite:" + db.getAbsolutePath(),
+                PragmaProfile.fromName(System.getProperty("stocks.db.profile")));
+        DatabaseConnection.Database();
+        seedHistory(historyRows);
+    }
+
+    // Generated inside SQLite in one statement; inserting 1M rows from Java would dominate setup
+    private static void seedHistory(int rows) throws SQLException {
+        String sql = """
+            WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < ?)
+            INSERT INTO history (symbol, price, day_change, gain_loss, action, time)
+            SELECT 'AAPL', 17823, 1.45, 23000,
+                   CASE i % 2 WHEN 0 THEN 'BUY' ELSE 'SELL' END,
+                   CAST(strftime('%s', 'now') AS INTEGER) * 1000 - ? + i
+            FROM n
+        """;
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, rows);
+            pstmt.setInt(2, rows);
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void buyStock() {
+        DatabaseConnection.buyStock("Apple Inc.", "Technology", "AAPL", 178.23, 1.45, 230.0);
+    }
+
+    @Override
+    public void removeOwnedStock() {
+        DatabaseConnection.removeOwnedStock("Apple Inc.", "Technology", "AAPL", 178.23, 1.45, 230.0);
+    }
+
+    @Override
+    public void updateStockPrices() {
+        DatabaseConnection.updateStockPrices();
+    }
+
+    @Override
+    public double getUserBalance() {
+        return DatabaseConnection.getUserBalance(USER);
+    }
+
+    @Override
+    public boolean checkLogin() {
+        return DatabaseConnection.checkLogin(USER, PASSWORD);
+    }
+
+    @Override
+    public int loadHistoryToTable() {
+        DatabaseConnection.loadHistoryToTable(history);
+        return history.getRowCount();
+    }
+
+    @Override
+    public void close() {
+        HistoryJournal.closeShared();
+    }
+}
@@ -0,0 +1,90 @@
+package stocksbench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the DatabaseConnection paths the UI depends on.
+ *
+ * Every fork gets its own temporary stocks.db, migrated and seeded with historyRows
+ * rows of history, and deleted afterwards. The pragma profile follows
+ * -Dstocks.db.profile like the app.
+ *
+ * Run with: ant bench-jmh  (-Dbench.jmh.args="..." for JMH options, e.g. a regex of benchmarks)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataPathBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int historyRows;
+
+    private Path dir;
+    private DataPaths db;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("stocks-jmh-");
+        db = DataPaths.load();
+        db.open(dir, historyRows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void buyStock() {
+        db.buyStock();
+    }
+
+    @Benchmark
+    public void removeOwnedStock() {
+        db.removeOwnedStock();
+    }
+
+    @Benchmark
+    public void updateStockPrices() {
+        db.updateStockPrices();
+    }
+
+    @Benchmark
+    public double getUserBalance() {
+        return db.getUserBalance();
+    }
+
+    @Benchmark
+    public boolean checkLogin() {
+        return db.checkLogin();
+    }
+
+    @Benchmark
+    public int loadHistoryToTable() {
+        return db.loadHistoryToTable();
+    }
+}
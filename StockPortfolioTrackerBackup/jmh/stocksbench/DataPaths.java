@@ -0,0 +1,35 @@
+package stocksbench;
+
+import java.nio.file.Path;
+
+/**
+ * The DatabaseConnection calls under benchmark.
+ *
+ * JMH does not accept benchmarks in the default package, and a named package cannot
+ * see the app's classes, so the benchmark drives them through this interface. The
+ * implementation ({@code JmhDataPaths}) lives in the default package next to the app.
+ */
+public interface DataPaths {
+
+    // Point the app at a fresh stocks.db in dir holding historyRows rows of history
+    void open(Path dir, int historyRows) throws Exception;
+
+    void buyStock();
+
+    void removeOwnedStock();
+
+    void updateStockPrices();
+
+    double getUserBalance();
+
+    boolean checkLogin();
+
+    // Returns the number of rows loaded
+    int loadHistoryToTable();
+
+    void close();
+
+    static DataPaths load() throws ReflectiveOperationException {
+        return (DataPaths) Class.forName("JmhDataPaths").getDeclaredConstructor().newInstance();
+    }
+}
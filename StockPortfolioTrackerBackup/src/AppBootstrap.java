@@ -0,0 +1,173 @@
+import java.awt.GraphicsEnvironment;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.ImageIcon;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+/**
+ * One-time application startup, shared by every frame in the JVM.
+ *
+ * Storage (schema migrations, price engine, tick store, quote feed), the look and feel and the
+ * frame images are initialized in parallel. Storage runs as the first task on the
+ * {@link DataPipeline}, so any database work submitted afterwards waits for it.
+ * When every phase is done the startup timeline is logged. If storage fails, a
+ * windowed run shows the error and exits; {@link #awaitStorage()} throws it.
+ */
+public final class AppBootstrap {
+
+    private static final Logger LOG = Logger.getLogger(AppBootstrap.class.getName());
+
+    // Background images used by the forms; loading them once warms the Toolkit image cache
+    private static final String[] ASSETS = {
+            "/bg.jpg", "/bg 8.png", "/4 bg.png", "/5 bg.png", "/6 BG.png", "/test 2.png",
+            "/1 gcash.png", "/1paymaya.png", "/1paypal.png"
+    };
+
+    private static AppBootstrap instance;
+
+    private record Phase(String name, long startMillis, long durationMillis) {
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> timeline = Collections.synchronizedList(new ArrayList<>());
+    private final CompletableFuture<Void> storage;
+    private final CompletableFuture<Void> lookAndFeel;
+    private final CompletableFuture<Void> assets;
+
+    private AppBootstrap() {
+        ExecutorService workers = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "bootstrap");
+            t.setDaemon(true);
+            return t;
+        });
+        DataPipeline pipeline = DataPipeline.shared();
+        storage = CompletableFuture.runAsync(phase("storage", AppBootstrap::initStorage), pipeline::submit);
+
+        // Server mode has no display: only storage is needed
+        if (GraphicsEnvironment.isHeadless()) {
+            lookAndFeel = CompletableFuture.completedFuture(null);
+            assets = CompletableFuture.completedFuture(null);
+        } else {
+            EdtWatchdog.install(); // before any frame exists, so every event goes through it
+            storage.whenComplete((ignored, error) -> {
+                if (error != null) SwingUtilities.invokeLater(() -> storageFailed(error));
+            });
+            lookAndFeel = CompletableFuture.runAsync(phase("look-and-feel", AppBootstrap::initLookAndFeel), workers);
+            assets = CompletableFuture.runAsync(phase("assets", AppBootstrap::preloadAssets), workers);
+        }
+
+        CompletableFuture.allOf(storage, lookAndFeel, assets).whenComplete((ignored, error) -> {
+            workers.shutdown();
+            logTimeline(error);
+        });
+    }
+
+    // Safe to call from every frame; only the first call does any work
+    public static synchronized AppBootstrap start() {
+        if (instance == null) {
+            instance = new AppBootstrap();
+        }
+        return instance;
+    }
+
+    // Frames should be built after this so they pick up the look and feel
+    public void awaitLookAndFeel() {
+        lookAndFeel.exceptionally(e -> null).join();
+    }
+
+    // Throws IllegalStateException if storage could not be initialized
+    public void awaitStorage() {
+        try {
+            storage.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Storage could not be initialized: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // ------------------------
+    // PHASES
+    // ------------------------
+    private static void initStorage() {
+        DatabaseConnection.Database();
+        PriceEngine engine = PriceEngine.shared();
+        TickStore ticks = TickStore.shared();
+        if (ticks != null) {
+            engine.addListener(ticks.listenerFor(engine)); // keep every tick on disk
+        }
+        engine.start();
+        Integer feedPort = Integer.getInteger("stocks.feed.port");
+        if (feedPort != null) {
+            QuoteFeed.startShared(feedPort); // push quotes to local subscribers
+        }
+    }
+
+    // Nothing works without the database; say why and quit rather than run against it
+    private static void storageFailed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        JOptionPane.showMessageDialog(null,
+                "Could not open the database.\n" + cause.getMessage(),
+                "Startup failed",
+                JOptionPane.ERROR_MESSAGE);
+        System.exit(1);
+    }
+
+    private static void initLookAndFeel() {
+        try {
+            for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
+                if ("Nimbus".equals(info.getName())) {
+                    UIManager.setLookAndFeel(info.getClassName());
+                    break;
+                }
+            }
+        } catch (ReflectiveOperationException | javax.swing.UnsupportedLookAndFeelException ex) {
+            LOG.log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private static void preloadAssets() {
+        for (String name : ASSETS) {
+            URL url = AppBootstrap.class.getResource(name);
+            if (url != null) {
+                new ImageIcon(url);
+            }
+        }
+    }
+
+    private Runnable phase(String name, Runnable work) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                long end = System.nanoTime();
+                timeline.add(new Phase(name, (start - startNanos) / 1_000_000, (end - start) / 1_000_000));
+            }
+        };
+    }
+
+    private void logTimeline(Throwable error) {
+        StringBuilder sb = new StringBuilder("Startup timeline:");
+        List<Phase> phases = new ArrayList<>(timeline);
+        phases.sort(Comparator.comparingLong(Phase::startMillis));
+        for (Phase p : phases) {
+            sb.append(String.format("%n  %-14s +%4d ms  %5d ms", p.name(), p.startMillis(), p.durationMillis()));
+        }
+        sb.append(String.format("%n  total %d ms", (System.nanoTime() - startNanos) / 1_000_000));
+        if (error != null) {
+            LOG.log(Level.SEVERE, sb.toString(), error);
+        } else {
+            LOG.info(sb.toString());
+        }
+    }
+}
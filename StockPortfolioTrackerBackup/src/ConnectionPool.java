@@ -0,0 +1,329 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of SQLite connections used behind {@link DatabaseConnection#connect()}.
+ *
+ * Callers keep using try-with-resources: closing the handed-out connection returns
+ * the physical connection to the pool instead of closing it.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final int maxSize;
+    private final int minIdle;
+    private final long maxIdleMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+    private final PragmaProfile profile;
+
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>(); // guarded by this
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder busyErrors = new LongAdder();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, int maxSize, int minIdle, long maxIdleMillis, long borrowTimeoutMillis,
+                          int statementCacheSize, PragmaProfile profile) {
+        if (maxSize < 1) throw new IllegalArgumentException("Pool size must be at least 1");
+        this.url = url;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.maxIdleMillis = maxIdleMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.profile = profile;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, maxIdleMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Pool settings come from system properties so they can be set in run.jvmargs
+    public static ConnectionPool fromSystemProperties(String url, PragmaProfile profile) {
+        return new ConnectionPool(
+                url,
+                Integer.getInteger("stocks.pool.size", 4),
+                Integer.getInteger("stocks.pool.minIdle", 1),
+                Long.getLong("stocks.pool.maxIdleMillis", 60_000L),
+                Long.getLong("stocks.pool.borrowTimeoutMillis", 10_000L),
+                Integer.getInteger("stocks.pool.statementCacheSize", 32),
+                profile);
+    }
+
+    // ------------------------
+    // BORROW / RETURN
+    // ------------------------
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            Physical physical = takeValidIdle();
+            if (physical == null) {
+                physical = open();
+            }
+            active.incrementAndGet();
+            borrows.increment();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void giveBack(Physical physical) {
+        active.decrementAndGet();
+        try {
+            Connection conn = physical.connection;
+            if (closed || conn.isClosed()) {
+                closeQuietly(physical);
+                return;
+            }
+            // Never hand a half-finished transaction to the next borrower
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            synchronized (this) {
+                idle.addFirst(new IdleConnection(physical, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Physical takeValidIdle() {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (this) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) return null;
+            if (isUsable(candidate.connection.connection)) return candidate.connection;
+            evicted.increment();
+            closeQuietly(candidate.connection);
+        }
+    }
+
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Physical open() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            System.out.println("SQLite JDBC driver not found!");
+        }
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            profile.apply(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        created.increment();
+        return new Physical(conn, new StatementCache(conn, statementCacheSize, statementHits, statementMisses, busyErrors));
+    }
+
+    // ------------------------
+    // IDLE EVICTION
+    // ------------------------
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - maxIdleMillis;
+        Deque<Physical> expired = new ArrayDeque<>();
+        synchronized (this) {
+            // Oldest connections sit at the tail; keep at least minIdle warm
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > minIdle) {
+                IdleConnection entry = it.next();
+                if (entry.returnedAt >= cutoff) break;
+                it.remove();
+                expired.add(entry.connection);
+            }
+        }
+        for (Physical physical : expired) {
+            evicted.increment();
+            closeQuietly(physical);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        Deque<IdleConnection> toClose;
+        synchronized (this) {
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        for (IdleConnection entry : toClose) {
+            closeQuietly(entry.connection);
+        }
+    }
+
+    // ------------------------
+    // STATS
+    // ------------------------
+    public PragmaProfile profile() {
+        return profile;
+    }
+
+    public Stats stats() {
+        int idleCount;
+        synchronized (this) {
+            idleCount = idle.size();
+        }
+        long borrowCount = borrows.sum();
+        double avgWaitMillis = borrowCount == 0 ? 0.0 : waitNanos.sum() / 1e6 / borrowCount;
+        return new Stats(maxSize, active.get(), idleCount, borrowCount, created.sum(), evicted.sum(),
+                avgWaitMillis, maxWaitNanos.get() / 1e6, statementHits.sum(), statementMisses.sum(), busyErrors.sum());
+    }
+
+    // busyErrors counts SQLITE_BUSY seen by statements and connection calls made through the pool
+    public record Stats(int maxSize, int active, int idle, long borrows, long created, long evicted,
+                        double avgWaitMillis, double maxWaitMillis, long statementHits, long statementMisses,
+                        long busyErrors) {
+        @Override
+        public String toString() {
+            return String.format("pool[size=%d active=%d idle=%d borrows=%d created=%d evicted=%d avgWait=%.3fms maxWait=%.3fms"
+                            + " stmtHits=%d stmtMisses=%d busy=%d]",
+                    maxSize, active, idle, borrows, created, evicted, avgWaitMillis, maxWaitMillis,
+                    statementHits, statementMisses, busyErrors);
+        }
+    }
+
+    // SQLite reports the primary result code in the low byte; 5 is SQLITE_BUSY
+    static boolean isBusy(Throwable t) {
+        return t instanceof SQLException e && (e.getErrorCode() & 0xff) == 5;
+    }
+
+    // Worth retrying later: busy (5), locked (6), or no connection free within the borrow timeout
+    static boolean isTransient(Throwable t) {
+        if (t instanceof SQLTimeoutException) return true;
+        if (!(t instanceof SQLException e)) return false;
+        int code = e.getErrorCode() & 0xff;
+        return code == 5 || code == 6;
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static void closeQuietly(Physical physical) {
+        physical.statements.closeAll();
+        try {
+            physical.connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // ------------------------
+    // CONNECTION HANDLE
+    // ------------------------
+    private Connection wrap(Physical physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledHandle(physical));
+    }
+
+    private record Physical(Connection connection, StatementCache statements) {
+    }
+
+    private record IdleConnection(Physical connection, long returnedAt) {
+    }
+
+    private final class PooledHandle implements InvocationHandler {
+        private final Physical physical;
+        private boolean released;
+
+        PooledHandle(Physical physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        giveBack(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physical.connection;
+                case "prepareStatement":
+                    // Plain prepareStatement(sql) goes through the per-connection cache
+                    if (!released && args.length == 1) {
+                        return physical.statements.prepare((String) args[0]);
+                    }
+                    return delegate(method, args);
+                default:
+                    return delegate(method, args);
+            }
+        }
+
+        private Object delegate(Method method, Object[] args) throws Throwable {
+            if (released) throw new SQLException("Connection has already been returned to the pool");
+            try {
+                return method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                if (isBusy(e.getCause())) busyErrors.increment();
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs database work on a background thread and hands the results to Swing.
+ *
+ * All work goes through one thread: SQLite only has a single writer anyway, and it
+ * keeps trades and refreshes in the order the user triggered them.
+ */
+public final class DataPipeline {
+
+    private static final DataPipeline SHARED = new DataPipeline("db-pipeline");
+
+    private final ScheduledExecutorService executor;
+
+    private DataPipeline(String threadName) {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static DataPipeline shared() {
+        return SHARED;
+    }
+
+    // Run work in the background, then pass its result to onEdt on the event dispatch thread
+    public <T> Future<?> submit(Callable<T> work, Consumer<? super T> onEdt) {
+        return executor.submit(() -> {
+            try {
+                T result = work.call();
+                SwingUtilities.invokeLater(() -> onEdt.accept(result));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public Future<?> submit(Runnable work) {
+        return executor.submit(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Fixed delay so a slow tick never queues up behind itself
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, initialDelay, delay, unit);
+    }
+}
@@ -1,240 +1,482 @@
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
 import javax.swing.table.DefaultTableModel;
 
 public class DatabaseConnection {
 
-    private static final String DB_URL = "jdbc:sqlite:stocks.db";
+    private static final String DB_URL = System.getProperty("stocks.db.url", "jdbc:sqlite:stocks.db");
+
+    // Shared pool; closing a connection from connect() hands it back here
+    private static volatile ConnectionPool pool = ConnectionPool.fromSystemProperties(
+            DB_URL, PragmaProfile.fromName(System.getProperty("stocks.db.profile")));
+
+    static {
+        // Pending history rows go out before the pool closes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            HistoryJournal.closeShared();
+            pool.close();
+        }, "db-pool-shutdown"));
+    }
+
+    // Call counts, errors and latency per operation (JMX and the diagnostics window)
+    private static final OperationMetrics.Operation MIGRATE = OperationMetrics.operation("Database");
+    private static final OperationMetrics.Operation BUY_STOCK = OperationMetrics.operation("buyStock");
+    private static final OperationMetrics.Operation REMOVE_OWNED_STOCK = OperationMetrics.operation("removeOwnedStock");
+    private static final OperationMetrics.Operation EXECUTE_BUY = OperationMetrics.operation("executeBuy");
+    private static final OperationMetrics.Operation EXECUTE_SELL = OperationMetrics.operation("executeSell");
+    private static final OperationMetrics.Operation FETCH_STOCKS = OperationMetrics.operation("fetchStocks");
+    private static final OperationMetrics.Operation FETCH_STOCK = OperationMetrics.operation("fetchStock");
+    private static final OperationMetrics.Operation FETCH_OWNED_STOCKS = OperationMetrics.operation("fetchOwnedStocks");
+    private static final OperationMetrics.Operation FETCH_POSITIONS = OperationMetrics.operation("fetchPositions");
+    private static final OperationMetrics.Operation FETCH_HISTORY_PAGE = OperationMetrics.operation("fetchHistoryPage");
+    private static final OperationMetrics.Operation HISTORY_ID_RANGE = OperationMetrics.operation("historyIdRange");
+    private static final OperationMetrics.Operation UPDATE_BALANCE = OperationMetrics.operation("updateBalance");
+    private static final OperationMetrics.Operation UPDATE_PRICES = OperationMetrics.operation("updatePrices");
+    private static final OperationMetrics.Operation CLEAR_HISTORY = OperationMetrics.operation("clearHistory");
+    private static final OperationMetrics.Operation ADD_USER = OperationMetrics.operation("addUser");
+    private static final OperationMetrics.Operation CHECK_LOGIN = OperationMetrics.operation("checkLogin");
+    private static final OperationMetrics.Operation GET_USER_BALANCE = OperationMetrics.operation("getUserBalance");
+    private static final OperationMetrics.Operation UPDATE_USER_BALANCE = OperationMetrics.operation("updateUserBalance");
 
     public static Connection connect() throws SQLException {
-        try {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException e) {
-            System.out.println("SQLite JDBC driver not found!");
-        }
-        return DriverManager.getConnection(DB_URL);
+        return pool.borrow();
+    }
+
+    public static ConnectionPool.Stats poolStats() {
+        return pool.stats();
+    }
+
+    // Point the app at another database file/profile (benchmarks and tools)
+    public static synchronized void configure(String url, PragmaProfile profile) {
+        HistoryJournal.flushShared();
+        ConnectionPool old = pool;
+        pool = ConnectionPool.fromSystemProperties(url, profile);
+        old.close();
     }
 
-    // Initialize database
+    // Initialize database: bring the schema up to the latest migration; throws if that fails
     public static void Database() {
-        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
-
-            // Users table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS users (
-                    username TEXT PRIMARY KEY,
-                    password TEXT
-                )
-            """);
-
-            // Add default admin user
-            stmt.execute("""
-                INSERT INTO users (username, password)
-                SELECT 'admin', 'admin123'
-                WHERE NOT EXISTS (SELECT 1 FROM users WHERE username = 'admin')
-            """);
-
-            // Balance table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS balance (
-                    username TEXT PRIMARY KEY,
-                    amount REAL
-                )
-            """);
-
-            // Set admin balance to 100000 if not exists
-            stmt.execute("""
-                INSERT INTO balance (username, amount)
-                SELECT 'admin', 100000.0
-                WHERE NOT EXISTS (SELECT 1 FROM balance WHERE username = 'admin')
-            """);
-
-            // Stocks table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS stocks (
-                    company TEXT,
-                    industry TEXT,
-                    symbol TEXT PRIMARY KEY,
-                    price REAL,
-                    day_change TEXT,
-                    gain_loss TEXT
-                )
-            """);
-
-            // Owned stocks table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS owned_stocks (
-                    company TEXT,
-                    industry TEXT,
-                    symbol TEXT PRIMARY KEY,
-                    price REAL,
-                    day_change TEXT,
-                    gain_loss TEXT
-                )
-            """);
-
-            // History table
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS history (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    company TEXT,
-                    industry TEXT,
-                    symbol TEXT,
-                    price REAL,
-                    day_change TEXT,
-                    gain_loss TEXT,
-                    action TEXT,
-                    date TEXT DEFAULT CURRENT_TIMESTAMP
-                )
-            """);
-
-            // Reset and insert sample stocks
-            stmt.execute("DELETE FROM stocks");
-            stmt.execute("""
-                INSERT INTO stocks (company, industry, symbol, price, day_change, gain_loss) VALUES
-                ('Apple Inc.', 'Technology', 'AAPL', 178.23, '+1.45%', '+$230'),
-                ('Microsoft Corp.', 'Technology', 'MSFT', 319.60, '-0.22%', '-$45'),
-                ('Tesla Inc.', 'Automotive', 'TSLA', 251.12, '+2.10%', '+$520'),
-                ('Coca-Cola Co.', 'Beverage', 'KO', 58.43, '+0.12%', '+$15'),
-                ('JPMorgan Chase', 'Finance', 'JPM', 144.56, '-0.35%', '-$90'),
-                ('Amazon.com Inc.', 'E-commerce', 'AMZN', 132.87, '+0.89%', '+$340')
-            """);
-
-            System.out.println("✅ Database initialized successfully!");
+        long start = System.nanoTime();
+        try (Connection conn = connect()) {
+
+            int applied = SchemaMigrations.migrate(conn);
+            System.out.println("✅ Database initialized successfully! (schema v"
+                    + SchemaMigrations.currentVersion(conn) + ", " + applied + " migration(s) applied)");
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            MIGRATE.failed(e);
+            throw new IllegalStateException("Could not initialize the database: " + e.getMessage(), e);
+        } finally {
+            MIGRATE.record(start);
         }
     }
 
     // ------------------------
     // STOCK OPERATIONS
     // ------------------------
-    public static void buyStock(String company, String industry, String symbol, double price, String dayChange, String gainLoss) {
+    public static void buyStock(String company, String industry, String symbol, double price, double dayChange, double gainLoss) {
         String sqlOwned = "INSERT OR REPLACE INTO owned_stocks (company, industry, symbol, price, day_change, gain_loss) VALUES (?, ?, ?, ?, ?, ?)";
-        String sqlHistory = "INSERT INTO history (company, industry, symbol, price, day_change, gain_loss, action) VALUES (?, ?, ?, ?, ?, ?, 'BUY')";
+        long start = System.nanoTime();
         try (Connection conn = connect();
-             PreparedStatement pstmt1 = conn.prepareStatement(sqlOwned);
-             PreparedStatement pstmt2 = conn.prepareStatement(sqlHistory)) {
+             PreparedStatement pstmt1 = conn.prepareStatement(sqlOwned)) {
 
             pstmt1.setString(1, company);
             pstmt1.setString(2, industry);
             pstmt1.setString(3, symbol);
-            pstmt1.setDouble(4, price);
-            pstmt1.setString(5, dayChange);
-            pstmt1.setString(6, gainLoss);
+            pstmt1.setLong(4, Money.toMinor(price));
+            pstmt1.setDouble(5, dayChange);
+            pstmt1.setLong(6, Money.toMinor(gainLoss));
             pstmt1.executeUpdate();
 
-            pstmt2.setString(1, company);
-            pstmt2.setString(2, industry);
-            pstmt2.setString(3, symbol);
-            pstmt2.setDouble(4, price);
-            pstmt2.setString(5, dayChange);
-            pstmt2.setString(6, gainLoss);
-            pstmt2.executeUpdate();
-
         } catch (SQLException e) {
+            BUY_STOCK.failed(e);
             e.printStackTrace();
+            return;
+        } finally {
+            BUY_STOCK.record(start);
         }
+        HistoryJournal.shared().append(new StockRow(company, industry, symbol, price, dayChange, gainLoss), "BUY");
     }
 
-    public static void removeOwnedStock(String company, String industry, String symbol, double price, String dayChange, String gainLoss) {
+    public static void removeOwnedStock(String company, String industry, String symbol, double price, double dayChange, double gainLoss) {
         String sqlDelete = "DELETE FROM owned_stocks WHERE symbol = ?";
-        String sqlHistory = "INSERT INTO history (company, industry, symbol, price, day_change, gain_loss, action) VALUES (?, ?, ?, ?, ?, ?, 'SELL')";
+        long start = System.nanoTime();
         try (Connection conn = connect();
-             PreparedStatement pstmt1 = conn.prepareStatement(sqlDelete);
-             PreparedStatement pstmt2 = conn.prepareStatement(sqlHistory)) {
+             PreparedStatement pstmt1 = conn.prepareStatement(sqlDelete)) {
 
             pstmt1.setString(1, symbol);
             pstmt1.executeUpdate();
 
-            pstmt2.setString(1, company);
-            pstmt2.setString(2, industry);
-            pstmt2.setString(3, symbol);
-            pstmt2.setDouble(4, price);
-            pstmt2.setString(5, dayChange);
-            pstmt2.setString(6, gainLoss);
-            pstmt2.executeUpdate();
+        } catch (SQLException e) {
+            REMOVE_OWNED_STOCK.failed(e);
+            e.printStackTrace();
+            return;
+        } finally {
+            REMOVE_OWNED_STOCK.record(start);
+        }
+        HistoryJournal.shared().append(new StockRow(company, industry, symbol, price, dayChange, gainLoss), "SELL");
+    }
 
+    // ------------------------
+    // ATOMIC TRADES
+    // ------------------------
+    // Balance debit and position commit together or not at all; the position cache and
+    // the user's session are updated right after the commit and the history row goes
+    // to the write-behind journal once the connection is back in the pool, so a full
+    // journal queue never holds one. Amounts are whole centavos in SQL.
+    public static TradeResult executeBuy(String username, StockRow stock) {
+        return executeBuy(username, stock, null);
+    }
+
+    // committedBalance, if given, gets the balance this trade committed (from RETURNING) when it fills
+    public static TradeResult executeBuy(String username, StockRow stock, DoubleConsumer committedBalance) {
+        String sqlDebit = "UPDATE balance SET amount = amount - ? WHERE username = ? AND amount >= ? RETURNING amount";
+        String sqlPosition = """
+            INSERT INTO positions (username, symbol, quantity, cost_basis, opened) VALUES (?, ?, 1, ?, ?)
+            ON CONFLICT (username, symbol) DO UPDATE SET
+                quantity = quantity + 1,
+                cost_basis = cost_basis + excluded.cost_basis
+        """;
+        PositionCache cache = PositionCache.shared();
+        long start = System.nanoTime();
+        double balance;
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement debit = conn.prepareStatement(sqlDebit);
+                 PreparedStatement position = conn.prepareStatement(sqlPosition)) {
+
+                // Conditional debit: the balance check and the write are one statement
+                long price = Money.toMinor(stock.price());
+                debit.setLong(1, price);
+                debit.setString(2, username);
+                debit.setLong(3, price);
+                try (ResultSet rs = debit.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return TradeResult.INSUFFICIENT_FUNDS;
+                    }
+                    balance = Money.fromMinor(rs.getLong(1));
+                }
+
+                position.setString(1, username);
+                position.setString(2, stock.symbol());
+                position.setLong(3, price);
+                position.setLong(4, System.currentTimeMillis());
+                position.executeUpdate();
+
+                Position updated = readPosition(conn, username, stock.symbol());
+                synchronized (cache.lockFor(username)) {
+                    conn.commit();
+                    cache.writeThrough(username, updated);
+                    UserSession.balanceCommitted(username, balance);
+                    UserSession.positionCommitted(username, updated);
+                }
+            }
         } catch (SQLException e) {
+            EXECUTE_BUY.failed(e);
             e.printStackTrace();
+            return TradeResult.FAILED;
+        } finally {
+            EXECUTE_BUY.record(start);
         }
+        HistoryJournal.shared().append(stock, "BUY");
+        if (committedBalance != null) committedBalance.accept(balance);
+        return TradeResult.FILLED;
     }
 
-    public static void loadDataToTable(DefaultTableModel model) {
-        model.setRowCount(0);
-        String sql = "SELECT * FROM stocks";
+    // Sells one share; the sold share takes its average cost, in whole centavos, out of the cost basis
+    public static TradeResult executeSell(String username, StockRow stock) {
+        return executeSell(username, stock, null);
+    }
+
+    public static TradeResult executeSell(String username, StockRow stock, DoubleConsumer committedBalance) {
+        String sqlReduce = """
+            UPDATE positions SET
+                cost_basis = cost_basis * (quantity - 1) / quantity,
+                quantity = quantity - 1
+            WHERE username = ? AND symbol = ? AND quantity > 0
+        """;
+        String sqlClose = "DELETE FROM positions WHERE username = ? AND symbol = ? AND quantity = 0";
+        String sqlCredit = "UPDATE balance SET amount = amount + ? WHERE username = ? RETURNING amount";
+        PositionCache cache = PositionCache.shared();
+        long start = System.nanoTime();
+        double balance;
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement reduce = conn.prepareStatement(sqlReduce);
+                 PreparedStatement close = conn.prepareStatement(sqlClose);
+                 PreparedStatement credit = conn.prepareStatement(sqlCredit)) {
+
+                reduce.setString(1, username);
+                reduce.setString(2, stock.symbol());
+                if (reduce.executeUpdate() == 0) {
+                    conn.rollback();
+                    return TradeResult.NOT_OWNED; // already sold, e.g. by a double click
+                }
+                close.setString(1, username);
+                close.setString(2, stock.symbol());
+                close.executeUpdate();
+
+                credit.setLong(1, Money.toMinor(stock.price()));
+                credit.setString(2, username);
+                try (ResultSet rs = credit.executeQuery()) {
+                    balance = rs.next() ? Money.fromMinor(rs.getLong(1)) : 0.0; // no balance row reads as 0, as in getUserBalance
+                }
+
+                Position updated = readPosition(conn, username, stock.symbol());
+                synchronized (cache.lockFor(username)) {
+                    conn.commit();
+                    cache.writeThrough(username, updated);
+                    UserSession.balanceCommitted(username, balance);
+                    UserSession.positionCommitted(username, updated);
+                }
+            }
+        } catch (SQLException e) {
+            EXECUTE_SELL.failed(e);
+            e.printStackTrace();
+            return TradeResult.FAILED;
+        } finally {
+            EXECUTE_SELL.record(start);
+        }
+        HistoryJournal.shared().append(stock, "SELL");
+        if (committedBalance != null) committedBalance.accept(balance);
+        return TradeResult.FILLED;
+    }
+
+    // Position as seen inside the current transaction; quantity 0 once it is closed
+    private static Position readPosition(Connection conn, String username, String symbol) throws SQLException {
+        String sql = "SELECT quantity, cost_basis FROM positions WHERE username = ? AND symbol = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+            pstmt.setString(2, symbol);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next()
+                        ? new Position(symbol, rs.getLong("quantity"), Money.fromMinor(rs.getLong("cost_basis")))
+                        : new Position(symbol, 0, 0.0);
+            }
+        }
+    }
+
+    public static List<StockRow> fetchStocks() {
+        return fetchStockRows("SELECT * FROM stocks", FETCH_STOCKS);
+    }
+
+    // One market row by symbol (primary key lookup), or null
+    public static StockRow fetchStock(String symbol) {
+        List<StockRow> rows = fetchStockRows("SELECT * FROM stocks WHERE symbol = ?", FETCH_STOCK, symbol);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // Legacy global holdings, written only by buyStock / removeOwnedStock
+    public static List<StockRow> fetchOwnedStocks() {
+        return fetchStockRows("SELECT * FROM owned_stocks", FETCH_OWNED_STOCKS);
+    }
+
+    private static List<StockRow> fetchStockRows(String sql, OperationMetrics.Operation op, String... params) {
+        List<StockRow> rows = new ArrayList<>();
+        long start = System.nanoTime();
         try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                        rs.getString("company"),
-                        rs.getString("industry"),
-                        rs.getString("symbol"),
-                        rs.getDouble("price"),
-                        rs.getString("day_change"),
-                        rs.getString("gain_loss")
-                });
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new StockRow(
+                            rs.getString("company"),
+                            rs.getString("industry"),
+                            rs.getString("symbol"),
+                            Money.fromMinor(rs.getLong("price")),
+                            rs.getDouble("day_change"),
+                            Money.fromMinor(rs.getLong("gain_loss"))));
+                }
             }
 
         } catch (SQLException e) {
+            op.failed(e);
             e.printStackTrace();
+        } finally {
+            op.record(start);
         }
+        return rows;
     }
 
-    public static void loadOwnedStocksToTable(DefaultTableModel model) {
-        model.setRowCount(0);
-        String sql = "SELECT * FROM owned_stocks";
+    // ------------------------
+    // POSITIONS
+    // ------------------------
+    // Straight from the table; callers should normally go through PositionCache.
+    // Throws instead of returning an empty map, so a failed read is never cached as "no positions"
+    public static Map<String, Position> fetchPositions(String username) throws SQLException {
+        Map<String, Position> positions = new LinkedHashMap<>();
+        String sql = "SELECT symbol, quantity, cost_basis FROM positions WHERE username = ? AND quantity > 0 ORDER BY opened, symbol";
+        long start = System.nanoTime();
         try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                        rs.getString("company"),
-                        rs.getString("industry"),
-                        rs.getString("symbol"),
-                        rs.getDouble("price"),
-                        rs.getString("day_change"),
-                        rs.getString("gain_loss")
-                });
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String symbol = rs.getString("symbol");
+                    positions.put(symbol, new Position(symbol, rs.getLong("quantity"), Money.fromMinor(rs.getLong("cost_basis"))));
+                }
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            FETCH_POSITIONS.failed(e);
+            throw e;
+        } finally {
+            FETCH_POSITIONS.record(start);
+        }
+        return positions;
+    }
+
+    // Cached positions joined with market rows in memory, O(positions)
+    public static List<HoldingRow> holdings(String username, List<StockRow> market) {
+        if (username == null) return List.of();
+        Map<String, StockRow> bySymbol = new HashMap<>(market.size() * 2);
+        for (StockRow row : market) {
+            bySymbol.put(row.symbol(), row);
+        }
+
+        List<HoldingRow> rows = new ArrayList<>();
+        for (Position p : PositionCache.shared().positions(username).values()) {
+            StockRow quote = bySymbol.get(p.symbol());
+            rows.add(quote == null
+                    ? new HoldingRow(p.symbol(), "", p.symbol(), p.quantity(), p.averageCost(), p.costBasis(), 0.0)
+                    : new HoldingRow(quote.company(), quote.industry(), p.symbol(), p.quantity(),
+                            quote.price(), p.costBasis(), quote.dayChange()));
+        }
+        return rows;
+    }
+
+    public static void loadDataToTable(DefaultTableModel model) {
+        fillTable(model, fetchStocks());
+    }
+
+    public static void loadOwnedStocksToTable(DefaultTableModel model) {
+        fillTable(model, fetchOwnedStocks());
+    }
+
+    // Served from the position cache joined with rows the caller already has, no SQL
+    public static void loadOwnedStocksToTable(String username, List<StockRow> market, DefaultTableModel model) {
+        model.setRowCount(0);
+        for (HoldingRow row : holdings(username, market)) {
+            model.addRow(new Object[]{
+                    row.company(), row.industry(), row.symbol(), row.quantity(),
+                    row.price(), row.dayChange(), row.gainLoss()
+            });
+        }
+    }
+
+    public static void fillTable(DefaultTableModel model, List<StockRow> rows) {
+        model.setRowCount(0);
+        for (StockRow row : rows) {
+            model.addRow(new Object[]{
+                    row.company(), row.industry(), row.symbol(), row.price(), row.dayChange(), row.gainLoss()
+            });
         }
     }
 
     // ------------------------
     // HISTORY
     // ------------------------
-    public static void loadHistoryToTable(DefaultTableModel model) {
-        model.setRowCount(0); // clear table first
+    public static List<HistoryRow> fetchHistory() {
+        return fetchHistoryPage(Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Keyset page walking the rowid index newest first: rows with id <= maxId
+    public static List<HistoryRow> fetchHistoryPage(long maxId, int limit) {
+        return fetchHistoryPage(maxId, Long.MIN_VALUE, Long.MAX_VALUE, limit);
+    }
+
+    // Same, limited to trades with fromMillis <= time < toMillis; a bounded range walks idx_history_time
+    public static List<HistoryRow> fetchHistoryPage(long maxId, long fromMillis, long toMillis, int limit) {
+        HistoryJournal.flushShared(); // read your own trades
+        List<HistoryRow> rows = new ArrayList<>();
+        boolean ranged = fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
         String sql = """
-            SELECT DISTINCT company, industry, symbol, price, day_change, gain_loss, action, date
-            FROM history
-            ORDER BY id DESC
+            SELECT h.id, s.company, s.industry, h.symbol, h.price, h.day_change, h.gain_loss, h.action, h.time
+            FROM history h LEFT JOIN stocks s ON s.symbol = h.symbol
+            WHERE h.id <= ?
+        """ + (ranged ? "AND h.time >= ? AND h.time < ?\n" : "") + """
+            ORDER BY h.id DESC
+            LIMIT ?
         """;
+        long start = System.nanoTime();
         try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                        rs.getString("company"),
-                        rs.getString("industry"),
-                        rs.getString("symbol"),
-                        rs.getDouble("price"),
-                        rs.getString("day_change"),
-                        rs.getString("gain_loss"),
-                        rs.getString("action"),
-                        rs.getString("date")
-                });
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            pstmt.setLong(i++, maxId);
+            if (ranged) {
+                pstmt.setLong(i++, fromMillis);
+                pstmt.setLong(i++, toMillis);
             }
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String symbol = rs.getString("symbol");
+                    String company = rs.getString("company");
+                    String industry = rs.getString("industry");
+                    rows.add(new HistoryRow(
+                            rs.getLong("id"),
+                            company == null ? symbol : company, // symbol no longer listed
+                            industry == null ? "" : industry,
+                            symbol,
+                            Money.fromMinor(rs.getLong("price")),
+                            rs.getDouble("day_change"),
+                            Money.fromMinor(rs.getLong("gain_loss")),
+                            rs.getString("action"),
+                            rs.getLong("time")));
+                }
+            }
+
+        } catch (SQLException e) {
+            FETCH_HISTORY_PAGE.failed(e);
+            e.printStackTrace();
+        } finally {
+            FETCH_HISTORY_PAGE.record(start);
+        }
+        return rows;
+    }
+
+    // {min id, max id} of history, both 0 when empty; two rowid lookups, no scan
+    public static long[] historyIdRange() {
+        HistoryJournal.flushShared();
+        String sql = "SELECT MIN(id), MAX(id) FROM history";
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            if (rs.next()) return new long[]{rs.getLong(1), rs.getLong(2)};
 
         } catch (SQLException e) {
+            HISTORY_ID_RANGE.failed(e);
             e.printStackTrace();
+        } finally {
+            HISTORY_ID_RANGE.record(start);
+        }
+        return new long[]{0, 0};
+    }
+
+    public static void loadHistoryToTable(DefaultTableModel model) {
+        fillHistoryTable(model, fetchHistory());
+    }
+
+    public static void fillHistoryTable(DefaultTableModel model, List<HistoryRow> rows) {
+        model.setRowCount(0); // clear table first
+        for (HistoryRow row : rows) {
+            model.addRow(new Object[]{
+                    row.company(), row.industry(), row.symbol(), row.price(),
+                    row.dayChange(), row.gainLoss(), row.action(), row.time()
+            });
         }
     }
 
@@ -245,38 +487,75 @@ public class DatabaseConnection {
 
     public static void updateBalance(String username, double newBalance) {
         String sql = "UPDATE balance SET amount = ? WHERE username = ?";
+        long start = System.nanoTime();
         try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setDouble(1, newBalance);
+            // Write first, then take the user's lock only to commit, as the trades do
+            conn.setAutoCommit(false);
+            long amount = Money.toMinor(newBalance);
+            pstmt.setLong(1, amount);
             pstmt.setString(2, username);
-            pstmt.executeUpdate();
+            int updated = pstmt.executeUpdate();
+            synchronized (PositionCache.shared().lockFor(username)) {
+                conn.commit();
+                if (updated > 0) UserSession.balanceCommitted(username, Money.fromMinor(amount));
+            }
 
         } catch (SQLException e) {
+            UPDATE_BALANCE.failed(e);
             e.printStackTrace();
+        } finally {
+            UPDATE_BALANCE.record(start);
         }
     }
 
     // ------------------------
     // MISC
     // ------------------------
+    // Advance the simulation one tick and write the prices through
     public static void updateStockPrices() {
-        String sql = "UPDATE stocks SET price = price + ((ABS(RANDOM()) % 200) - 100) / 100.0";
+        PriceEngine engine = PriceEngine.shared();
+        engine.step();
+        engine.persist();
+    }
+
+    // Batched write of simulated prices, one transaction for all symbols
+    public static void updatePrices(String[] symbols, double[] prices) {
+        String sql = "UPDATE stocks SET price = ? WHERE symbol = ?";
+        long start = System.nanoTime();
         try (Connection conn = connect();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            conn.setAutoCommit(false);
+            for (int i = 0; i < symbols.length; i++) {
+                pstmt.setLong(1, Money.toMinor(prices[i]));
+                pstmt.setString(2, symbols[i]);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+
         } catch (SQLException e) {
+            UPDATE_PRICES.failed(e);
             e.printStackTrace();
+        } finally {
+            UPDATE_PRICES.record(start);
         }
     }
 
     public static void clearHistory() {
+        HistoryJournal.flushShared(); // so queued rows don't reappear after the delete
         String sql = "DELETE FROM history";
+        long start = System.nanoTime();
         try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.executeUpdate();
         } catch (SQLException e) {
+            CLEAR_HISTORY.failed(e);
             System.out.println("Error clearing history: " + e.getMessage());
+        } finally {
+            CLEAR_HISTORY.record(start);
         }
     }
 
@@ -285,8 +564,9 @@ public class DatabaseConnection {
     // ------------------------
     public static boolean addUser(String username, String password) {
         String sqlUser = "INSERT INTO users (username, password) VALUES (?, ?)";
-        String sqlBalance = "INSERT INTO balance (username, amount) VALUES (?, 10000.0)";
+        String sqlBalance = "INSERT INTO balance (username, amount) VALUES (?, 1000000)"; // 10,000.00
 
+        long start = System.nanoTime();
         try (Connection conn = connect();
              PreparedStatement pstmtUser = conn.prepareStatement(sqlUser);
              PreparedStatement pstmtBalance = conn.prepareStatement(sqlBalance)) {
@@ -301,13 +581,17 @@ public class DatabaseConnection {
             return true;
 
         } catch (SQLException e) {
+            ADD_USER.failed(e);
             System.out.println("Error adding user: " + e.getMessage());
             return false;
+        } finally {
+            ADD_USER.record(start);
         }
     }
 
     public static boolean checkLogin(String username, String password) {
         String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
+        long start = System.nanoTime();
         try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -319,36 +603,62 @@ public class DatabaseConnection {
             }
 
         } catch (SQLException e) {
+            CHECK_LOGIN.failed(e);
             System.out.println("Login error: " + e.getMessage());
             return false;
+        } finally {
+            CHECK_LOGIN.record(start);
         }
     }
 
     public static double getUserBalance(String username) {
-    String sql = "SELECT amount FROM balance WHERE username = ?";
-    try (Connection conn = connect();
-         PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-        pstmt.setString(1, username);
-        try (ResultSet rs = pstmt.executeQuery()) {
-            if (rs.next()) return rs.getDouble("amount");
-        }
+    try {
+        return readBalance(username);
     } catch (SQLException e) {
         e.printStackTrace();
+        return 0.0;
     }
-    return 0.0;
 }
 
+    // Like getUserBalance, but a failed read throws instead of reading as 0 (no row still reads as 0)
+    public static double readBalance(String username) throws SQLException {
+        String sql = "SELECT amount FROM balance WHERE username = ?";
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Money.fromMinor(rs.getLong("amount")) : 0.0;
+            }
+        } catch (SQLException e) {
+            GET_USER_BALANCE.failed(e);
+            throw e;
+        } finally {
+            GET_USER_BALANCE.record(start);
+        }
+    }
+
 
     public static void updateUserBalance(String username, double newBalance) {
         String sql = "UPDATE balance SET amount = ? WHERE username = ?";
+        long start = System.nanoTime();
         try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, newBalance);
+            conn.setAutoCommit(false);
+            long amount = Money.toMinor(newBalance);
+            pstmt.setLong(1, amount);
             pstmt.setString(2, username);
-            pstmt.executeUpdate();
+            int updated = pstmt.executeUpdate();
+            synchronized (PositionCache.shared().lockFor(username)) {
+                conn.commit();
+                if (updated > 0) UserSession.balanceCommitted(username, Money.fromMinor(amount));
+            }
         } catch (SQLException e) {
+            UPDATE_USER_BALANCE.failed(e);
             e.printStackTrace();
+        } finally {
+            UPDATE_USER_BALANCE.record(start);
         }
     }
 
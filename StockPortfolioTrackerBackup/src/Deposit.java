@@ -1,6 +1,6 @@
 public class Deposit extends javax.swing.JFrame {
 
-    private String loggedInUsername;
+    private UserSession session;
 
     // ✅ No-arg constructor (for NetBeans preview)
     public Deposit() {
@@ -8,19 +8,18 @@ public class Deposit extends javax.swing.JFrame {
         setLocationRelativeTo(null);
     }
 
-    // ✅ Constructor with username
-    public Deposit(String username) {
-        this.loggedInUsername = username;   // store logged-in user
+    // ✅ Constructor with the logged-in session
+    public Deposit(UserSession session) {
+        this.session = session;            // store logged-in user
         initComponents();
         setLocationRelativeTo(null);
         showBalance();                     // display balance for this user
     }
 
-    // Display user balance in the JLabel
+    // Display user balance next to BALANCE:, cached in the session since login
     private void showBalance() {
-        if (loggedInUsername != null && jLabel6 != null) {
-            double balance = DatabaseConnection.getUserBalance(loggedInUsername);
-            jLabel6.setText("₱ " + String.format("%.2f", balance));
+        if (session != null) {
+            session.showBalance(balance -> jLabel14.setText("₱ " + String.format("%.2f", balance)));
         }
     }
 
@@ -0,0 +1,146 @@
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.util.List;
+import javax.swing.BorderFactory;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+/**
+ * Live view of {@link OperationMetrics}, the connection pool, the history journal,
+ * the worst EDT stall site, the quote feed and the Stock window's tick coalescer.
+ *
+ * Opened from the Stock frame with Ctrl+Shift+D. Refreshes once a second while
+ * visible; the table starts sorted by p99 so the slowest query is on top.
+ */
+public class DiagnosticsFrame extends JFrame {
+
+    private static DiagnosticsFrame instance;
+
+    private final OperationsModel model = new OperationsModel();
+    private final JLabel poolLabel = new JLabel();
+    private final JLabel journalLabel = new JLabel();
+    private final JLabel edtLabel = new JLabel();
+    private final JLabel feedLabel = new JLabel();
+    private final JLabel uiLabel = new JLabel();
+    private final Timer refresh = new Timer(1000, e -> refresh());
+
+    private DiagnosticsFrame() {
+        super("Diagnostics");
+        setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getRowSorter().setSortKeys(List.of(new RowSorter.SortKey(OperationsModel.P99, SortOrder.DESCENDING)));
+
+        JPanel status = new JPanel(new GridLayout(5, 1));
+        status.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+        poolLabel.setFont(poolLabel.getFont().deriveFont(Font.PLAIN));
+        journalLabel.setFont(journalLabel.getFont().deriveFont(Font.PLAIN));
+        edtLabel.setFont(edtLabel.getFont().deriveFont(Font.PLAIN));
+        feedLabel.setFont(feedLabel.getFont().deriveFont(Font.PLAIN));
+        uiLabel.setFont(uiLabel.getFont().deriveFont(Font.PLAIN));
+        status.add(poolLabel);
+        status.add(journalLabel);
+        status.add(edtLabel);
+        status.add(feedLabel);
+        status.add(uiLabel);
+
+        getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        getContentPane().add(status, BorderLayout.SOUTH);
+        setSize(900, 420);
+
+        addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentShown(java.awt.event.ComponentEvent e) {
+                refresh();
+                refresh.start();
+            }
+
+            @Override
+            public void componentHidden(java.awt.event.ComponentEvent e) {
+                refresh.stop();
+            }
+        });
+    }
+
+    public static void open(Component parent) {
+        if (instance == null) {
+            instance = new DiagnosticsFrame();
+            instance.setLocationRelativeTo(parent);
+        }
+        instance.setVisible(true);
+        instance.toFront();
+    }
+
+    private void refresh() {
+        model.apply(OperationMetrics.snapshot());
+        poolLabel.setText(DatabaseConnection.poolStats().toString());
+        HistoryJournal.Stats journal = HistoryJournal.sharedStats();
+        journalLabel.setText(journal == null ? "journal: idle" : "journal: " + journal);
+        EdtWatchdog watchdog = EdtWatchdog.installed();
+        if (watchdog == null) {
+            edtLabel.setText("EDT watchdog: off");
+        } else {
+            List<EdtWatchdog.Site> top = watchdog.topSites(1);
+            edtLabel.setText("EDT stalls: " + watchdog.stallCount() + (top.isEmpty() ? "" : ", worst site " + top.get(0)));
+        }
+        QuoteFeed feed = QuoteFeed.shared();
+        feedLabel.setText(feed == null ? "quote feed: off" : "quote feed (port " + feed.port() + "): " + feed.stats());
+        TickCoalescer ticks = TickCoalescer.active();
+        uiLabel.setText(ticks == null ? "UI frames: off" : "UI frames (max " + TickCoalescer.FPS + " fps): " + ticks.stats());
+    }
+
+    // ------------------------
+    // TABLE
+    // ------------------------
+    private static final class OperationsModel extends KeyedTableModel<OperationMetrics.Snapshot> {
+        static final int P99 = 5;
+
+        OperationsModel() {
+            super("Operation", "Calls", "Errors", "Mean ms", "p50 ms", "p99 ms", "p999 ms", "Max ms", "Last error");
+        }
+
+        @Override
+        protected String keyOf(OperationMetrics.Snapshot row) {
+            return row.name();
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0: case 8: return String.class;
+                case 1: case 2: return Long.class;
+                default: return Double.class;
+            }
+        }
+
+        @Override
+        protected Object valueOf(OperationMetrics.Snapshot row, int column) {
+            switch (column) {
+                case 0: return row.name();
+                case 1: return row.count();
+                case 2: return row.errors();
+                case 3: return round(row.meanMillis());
+                case 4: return round(row.p50Millis());
+                case 5: return round(row.p99Millis());
+                case 6: return round(row.p999Millis());
+                case 7: return round(row.maxMillis());
+                case 8: return row.lastError();
+                default: throw new IndexOutOfBoundsException("column " + column);
+            }
+        }
+
+        private static double round(double millis) {
+            return Math.round(millis * 1000) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Flags event dispatch thread stalls and records where they happened.
+ *
+ * A custom EventQueue marks every busy stretch of the EDT: from the moment it takes an
+ * event off the queue until it asks for the next one. Modal dialogs run their own loop
+ * through the same queue, so waiting in a JOptionPane is not counted as busy.
+ *
+ * A monitor thread checks the current stretch every threshold/4 ms; once it runs past
+ * the threshold it captures the EDT's stack. When the stretch ends the stall is logged
+ * with that stack and added to its site, the deepest application frame on the stack.
+ * The busiest sites are logged once a minute, shown in the diagnostics window,
+ * recorded as the "edt.stall" operation and exposed as stocks:type=EdtWatchdog.
+ *
+ * Tuning: -Dstocks.edt.stallMillis (default 100), -Dstocks.edt.watchdog=false to disable
+ */
+public final class EdtWatchdog extends EventQueue {
+
+    private static final Logger LOG = Logger.getLogger(EdtWatchdog.class.getName());
+
+    // Frames from these packages are never reported as the stall site
+    private static final String[] LIBRARY_PREFIXES = {
+            "java.", "javax.", "sun.", "jdk.", "com.sun.", "org.sqlite.", "org.netbeans.", "EdtWatchdog"
+    };
+
+    public interface EdtWatchdogMXBean {
+        long getStallThresholdMillis();
+
+        long getStallCount();
+
+        String[] getTopStallSites();
+    }
+
+    public record Site(String site, long count, long totalMillis, long maxMillis) {
+        @Override
+        public String toString() {
+            return String.format("%s x%d (max %d ms, total %d ms)", site, count, maxMillis, totalMillis);
+        }
+    }
+
+    private record Sample(long stretch, StackTraceElement[] stack) {
+    }
+
+    private static EdtWatchdog installed;
+
+    private final long thresholdNanos;
+    private final OperationMetrics.Operation stalls = OperationMetrics.operation("edt.stall");
+    private final Map<String, SiteStats> sites = new ConcurrentHashMap<>();
+    private final AtomicLong stallCount = new AtomicLong();
+
+    // Written by the EDT, read by the monitor
+    private volatile Thread edt;
+    private volatile long stretchStart;   // 0 while the EDT waits for events
+    private volatile long stretch;        // id of the current busy stretch
+    private volatile Sample sample;       // stack captured for a stretch past the threshold
+    private AWTEvent lastEvent;           // EDT only
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    // Replace the system event queue; safe to call more than once
+    public static synchronized void install() {
+        if (installed != null || !Boolean.parseBoolean(System.getProperty("stocks.edt.watchdog", "true"))) return;
+        installed = new EdtWatchdog(Long.getLong("stocks.edt.stallMillis", 100L));
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+        installed.startMonitor();
+        installed.register();
+    }
+
+    public static synchronized EdtWatchdog installed() {
+        return installed;
+    }
+
+    // ------------------------
+    // EVENT QUEUE
+    // ------------------------
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        endStretch();
+        AWTEvent event = super.getNextEvent();
+        beginStretch();
+        return event;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        if (stretchStart == 0) beginStretch(); // events dispatched without getNextEvent, e.g. by a filter
+        lastEvent = event;
+        super.dispatchEvent(event);
+    }
+
+    private void beginStretch() {
+        edt = Thread.currentThread();
+        stretch++;
+        stretchStart = System.nanoTime();
+    }
+
+    private void endStretch() {
+        long start = stretchStart;
+        if (start == 0) return;
+        stretchStart = 0;
+        long busy = System.nanoTime() - start;
+        if (busy < thresholdNanos) return;
+
+        Sample s = sample;
+        StackTraceElement[] stack = s != null && s.stretch() == stretch ? s.stack() : new StackTraceElement[0];
+        recordStall(busy, stack, lastEvent);
+    }
+
+    private void recordStall(long busyNanos, StackTraceElement[] stack, AWTEvent event) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(busyNanos);
+        String site = siteOf(stack);
+        sites.computeIfAbsent(site, k -> new SiteStats()).add(millis);
+        stallCount.incrementAndGet();
+        stalls.record(System.nanoTime() - busyNanos);
+
+        StringBuilder sb = new StringBuilder()
+                .append("EDT stalled ").append(millis).append(" ms in ").append(site);
+        if (event != null) {
+            sb.append(" while handling ").append(event.getClass().getSimpleName()).append(" id=").append(event.getID());
+        }
+        for (StackTraceElement frame : stack) {
+            sb.append(System.lineSeparator()).append("    at ").append(frame);
+        }
+        LOG.warning(sb.toString());
+    }
+
+    static String siteOf(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (!isLibrary(frame.getClassName())) {
+                return frame.getClassName() + "." + frame.getMethodName()
+                        + "(" + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+            }
+        }
+        return stack.length == 0 ? "(stack not captured)" : stack[0].toString();
+    }
+
+    private static boolean isLibrary(String className) {
+        if (className.contains("$$Lambda")) return true;
+        for (String prefix : LIBRARY_PREFIXES) {
+            if (className.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    // ------------------------
+    // MONITOR
+    // ------------------------
+    private void startMonitor() {
+        long periodMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(thresholdNanos) / 4);
+        Thread monitor = new Thread(() -> {
+            long nextSummary = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            long summarizedCount = 0;
+            while (true) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                check();
+                if (System.nanoTime() >= nextSummary) {
+                    nextSummary = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+                    long count = stallCount.get();
+                    if (count != summarizedCount) {
+                        summarizedCount = count;
+                        logSummary();
+                    }
+                }
+            }
+        }, "edt-watchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+    }
+
+    // Capture the stack once per stretch, as soon as it crosses the threshold
+    private void check() {
+        long start = stretchStart;
+        long id = stretch;
+        Thread thread = edt;
+        if (start == 0 || thread == null || System.nanoTime() - start < thresholdNanos) return;
+        Sample s = sample;
+        if (s != null && s.stretch() == id) return;
+
+        StackTraceElement[] stack = thread.getStackTrace();
+        if (stretch == id && stretchStart == start) {
+            sample = new Sample(id, stack);
+        }
+    }
+
+    private void logSummary() {
+        StringBuilder sb = new StringBuilder("Top EDT stall sites (").append(stallCount.get()).append(" stalls):");
+        for (Site site : topSites(5)) {
+            sb.append(System.lineSeparator()).append("  ").append(site);
+        }
+        LOG.info(sb.toString());
+    }
+
+    // ------------------------
+    // STATS
+    // ------------------------
+    public long stallCount() {
+        return stallCount.get();
+    }
+
+    // Sites ordered by total stalled time
+    public List<Site> topSites(int limit) {
+        List<Site> all = new ArrayList<>();
+        for (Map.Entry<String, SiteStats> e : sites.entrySet()) {
+            all.add(e.getValue().snapshot(e.getKey()));
+        }
+        all.sort(Comparator.comparingLong(Site::totalMillis).reversed());
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    private static final class SiteStats {
+        private long count;
+        private long totalMillis;
+        private long maxMillis;
+
+        synchronized void add(long millis) {
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        synchronized Site snapshot(String site) {
+            return new Site(site, count, totalMillis, maxMillis);
+        }
+    }
+
+    private void register() {
+        EdtWatchdogMXBean bean = new EdtWatchdogMXBean() {
+            @Override
+            public long getStallThresholdMillis() {
+                return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+            }
+
+            @Override
+            public long getStallCount() {
+                return stallCount();
+            }
+
+            @Override
+            public String[] getTopStallSites() {
+                return topSites(10).stream().map(Site::toString).toArray(String[]::new);
+            }
+        };
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName("stocks:type=EdtWatchdog"));
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not register the EDT watchdog MBean", e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.table.TableCellRenderer;
+
+/**
+ * Renders the numeric columns: prices, day change in percent, signed gains and
+ * epoch-millis times.
+ *
+ * Painting a cell allocates nothing: the value is formatted into a reused buffer
+ * ({@link NumberText}) and drawn with drawChars, and colors are kept in fields
+ * instead of going through setForeground/setText and their property events.
+ * Change and money columns are green or red by sign. A cell that moved within the
+ * last {@link TickFlash#FLASH_MILLIS} ms gets a green or red background; the table's
+ * TickFlash repaints just that cell when the flash is over.
+ */
+public class FormattedCellRenderer extends JComponent implements TableCellRenderer {
+
+    private enum Style { PRICE, PERCENT, SIGNED_MONEY, TIME }
+
+    private static final Color UP = new Color(40, 200, 90);
+    private static final Color DOWN = new Color(235, 70, 70);
+    private static final Color UP_FLASH = new Color(40, 200, 90, 110);
+    private static final Color DOWN_FLASH = new Color(235, 70, 70, 110);
+    private static final Insets PADDING = new Insets(1, 3, 1, 3);
+
+    private final Style style;
+    private final boolean rightAligned;
+    private final StringBuilder text = new StringBuilder(32);
+    private char[] chars = new char[32];
+    private int length;
+
+    // Set per cell in getTableCellRendererComponent, read in paintComponent
+    private Color foreground;
+    private Color background;
+    private Color flash;
+    private Font cellFont;
+    private boolean focused;
+
+    private FormattedCellRenderer(Style style, boolean rightAligned) {
+        this.style = style;
+        this.rightAligned = rightAligned;
+    }
+
+    // 178.23
+    public static FormattedCellRenderer price() {
+        return new FormattedCellRenderer(Style.PRICE, true);
+    }
+
+    // +1.45%
+    public static FormattedCellRenderer percent() {
+        return new FormattedCellRenderer(Style.PERCENT, true);
+    }
+
+    // +$230.00 / -$45.00
+    public static FormattedCellRenderer signedMoney() {
+        return new FormattedCellRenderer(Style.SIGNED_MONEY, true);
+    }
+
+    // Epoch millis in the local time zone
+    public static FormattedCellRenderer time() {
+        return new FormattedCellRenderer(Style.TIME, false);
+    }
+
+    // After setModel: the table rebuilds its columns when the model changes
+    public void install(JTable table, int column) {
+        table.getColumnModel().getColumn(column).setCellRenderer(this);
+        if (style != Style.TIME) TickFlash.attach(table);
+    }
+
+    // ------------------------
+    // TableCellRenderer
+    // ------------------------
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        foreground = isSelected ? table.getSelectionForeground() : table.getForeground();
+        background = isSelected ? table.getSelectionBackground() : table.getBackground();
+        cellFont = table.getFont();
+        focused = hasFocus;
+        flash = null;
+
+        text.setLength(0);
+        if (value instanceof Number) {
+            format(((Number) value).doubleValue(), ((Number) value).longValue());
+            if (!isSelected) {
+                colorBySign(((Number) value).doubleValue());
+                flashIfMoved(table, row, column);
+            }
+        } else if (value != null) {
+            text.append(value);
+        }
+        length = text.length();
+        if (chars.length < length) chars = new char[length * 2];
+        text.getChars(0, length, chars, 0);
+        return this;
+    }
+
+    private void format(double value, long longValue) {
+        switch (style) {
+            case PRICE: NumberText.appendFixed(text, value, 2, false); break;
+            case PERCENT: NumberText.appendSigned(text, value, "", 2, false).append('%'); break;
+            case SIGNED_MONEY: NumberText.appendSigned(text, value, "$", 2, false); break;
+            case TIME: NumberText.appendDateTime(text, longValue); break;
+            default: break;
+        }
+    }
+
+    private void colorBySign(double value) {
+        if (style != Style.PERCENT && style != Style.SIGNED_MONEY) return;
+        if (value > 0) foreground = UP;
+        if (value < 0) foreground = DOWN;
+    }
+
+    private void flashIfMoved(JTable table, int row, int column) {
+        if (style == Style.TIME || !(table.getModel() instanceof KeyedTableModel)) return;
+        KeyedTableModel<?> model = (KeyedTableModel<?>) table.getModel();
+        int move = model.recentMove(table.convertRowIndexToModel(row), table.convertColumnIndexToModel(column),
+                System.currentTimeMillis(), TickFlash.FLASH_MILLIS);
+        if (move > 0) flash = UP_FLASH;
+        if (move < 0) flash = DOWN_FLASH;
+    }
+
+    // ------------------------
+    // PAINT
+    // ------------------------
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        g.setColor(background);
+        g.fillRect(0, 0, width, height);
+        if (flash != null) {
+            g.setColor(flash);
+            g.fillRect(0, 0, width, height);
+        }
+
+        Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        if (hints instanceof Map) {
+            ((Graphics2D) g).addRenderingHints((Map<?, ?>) hints); // same text antialiasing as a JLabel
+        } else {
+            ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        }
+        g.setFont(cellFont);
+        FontMetrics metrics = g.getFontMetrics();
+        int x = rightAligned ? width - PADDING.right - metrics.charsWidth(chars, 0, length) : PADDING.left;
+        int y = (height - metrics.getHeight()) / 2 + metrics.getAscent();
+        g.setColor(foreground);
+        g.drawChars(chars, 0, length, x, y);
+
+        if (focused) {
+            Border border = UIManager.getBorder("Table.focusCellHighlightBorder");
+            if (border != null) border.paintBorder(this, g, 0, 0, width, height);
+        }
+    }
+
+    // Overridden for performance, as DefaultTableCellRenderer does: a renderer is only
+    // ever stamped, never laid out or repainted on its own
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint(Rectangle r) {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+    }
+}
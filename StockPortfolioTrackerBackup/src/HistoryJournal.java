@@ -0,0 +1,309 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind journal for the history table.
+ *
+ * Trades append their history row to a bounded queue and return; one writer thread
+ * drains it and inserts everything that arrived within flushMillis (or up to batchRows
+ * rows) as one batch in one transaction, so many trades share a single commit.
+ *
+ * When the queue is full the backpressure policy decides: BLOCK waits for space,
+ * CALLER_RUNS writes the row on the calling thread (it may then land ahead of rows
+ * still queued). {@link #flush()} waits until everything appended before the call is
+ * on disk; readers of history call it first, and it runs in the shutdown hook before
+ * the pool closes.
+ *
+ * A batch that fails to commit because the database is busy or locked, or no pooled
+ * connection came free in time, is kept and retried with backoff; its rows only count
+ * as written once the commit succeeds. Any other error (constraint, schema, bad bind)
+ * will not go away by retrying, so that batch is logged and counted as abandoned at
+ * once. After close() a batch gets a few last attempts so shutdown cannot hang.
+ *
+ * Tuning: -Dstocks.history.queueSize, -Dstocks.history.batchRows,
+ * -Dstocks.history.flushMillis, -Dstocks.history.backpressure=block|caller_runs
+ */
+public final class HistoryJournal {
+
+    public enum Backpressure { BLOCK, CALLER_RUNS }
+
+    public record Stats(long appended, long written, long batches, int maxBatch, long callerRuns, int queued,
+                        long retries, long abandoned) {
+    }
+
+    private record Entry(StockRow stock, String action, long time) {
+    }
+
+    private static final String SQL_INSERT =
+            "INSERT INTO history (symbol, price, day_change, gain_loss, action, time) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final long RETRY_MIN_MILLIS = 10;
+    private static final long RETRY_MAX_MILLIS = 1000;
+    private static final int CLOSE_ATTEMPTS = 5; // per batch once closed
+
+    private static volatile HistoryJournal shared;
+    private static final OperationMetrics.Operation WRITE_BATCH = OperationMetrics.operation("historyJournal.writeBatch");
+
+    private final BlockingQueue<Entry> queue;
+    private final int batchRows;
+    private final long flushMillis;
+    private final Backpressure backpressure;
+    private final Thread writer;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final Object progress = new Object();
+    private long written;            // guarded by progress; rows taken off the queue and committed
+    private long abandoned;          // guarded by progress; rows that failed for good or were given up on after close()
+    private volatile long flushTarget;
+    private volatile boolean closed;
+    private long batches;
+    private int maxBatch;
+    private long retries;
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    public HistoryJournal(int queueSize, int batchRows, long flushMillis, Backpressure backpressure) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchRows = batchRows;
+        this.flushMillis = flushMillis;
+        this.backpressure = backpressure;
+        this.writer = new Thread(this::drain, "history-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static HistoryJournal shared() {
+        HistoryJournal journal = shared;
+        if (journal == null) {
+            synchronized (HistoryJournal.class) {
+                journal = shared;
+                if (journal == null) {
+                    journal = new HistoryJournal(
+                            Integer.getInteger("stocks.history.queueSize", 4096),
+                            Integer.getInteger("stocks.history.batchRows", 256),
+                            Long.getLong("stocks.history.flushMillis", 50L),
+                            Backpressure.valueOf(System.getProperty("stocks.history.backpressure", "block").toUpperCase()));
+                    shared = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    // For hooks that must not start the journal just to flush it
+    public static void flushShared() {
+        HistoryJournal journal = shared;
+        if (journal != null) journal.flush();
+    }
+
+    // Stats of the shared journal, or null if nothing has been journaled yet
+    public static Stats sharedStats() {
+        HistoryJournal journal = shared;
+        return journal == null ? null : journal.stats();
+    }
+
+    public static void closeShared() {
+        HistoryJournal journal = shared;
+        if (journal != null) journal.close();
+    }
+
+    // ------------------------
+    // APPEND
+    // ------------------------
+    public void append(StockRow stock, String action) {
+        Entry entry = new Entry(stock, action, System.currentTimeMillis());
+        if (closed) {
+            writeNow(entry);
+            return;
+        }
+        if (queue.offer(entry)) {
+            appended.incrementAndGet();
+            // Raced with close(): if the final drain missed it, write it here
+            if (closed && queue.remove(entry)) commit(List.of(entry));
+            return;
+        }
+        if (backpressure == Backpressure.CALLER_RUNS) {
+            callerRuns.incrementAndGet();
+            writeNow(entry);
+            return;
+        }
+        try {
+            queue.put(entry);
+            appended.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeNow(entry); // never drop a trade's history row
+        }
+    }
+
+    // Blocks until every row appended before this call has been committed
+    public void flush() {
+        long target = appended.get();
+        synchronized (progress) {
+            if (written + abandoned >= target) return;
+            flushTarget = Math.max(flushTarget, target);
+            while (written + abandoned < target && writer.isAlive()) {
+                try {
+                    progress.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Flushes and stops the writer; later appends are written synchronously
+    public void close() {
+        closed = true;
+        flush();
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // An append that raced with closed may have queued after the writer's last drain
+        List<Entry> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) commit(rest);
+    }
+
+    public Stats stats() {
+        synchronized (progress) {
+            return new Stats(appended.get(), written, batches, maxBatch, callerRuns.get(), queue.size(),
+                    retries, abandoned);
+        }
+    }
+
+    // ------------------------
+    // WRITER
+    // ------------------------
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchRows);
+        while (true) {
+            try {
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (closed) return;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchRows - batch.size());
+
+                // Group commit: keep collecting for up to flushMillis unless full or someone is waiting
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                while (batch.size() < batchRows && !flushWaiting(batch.size())) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, batchRows - batch.size());
+                }
+            } catch (InterruptedException e) {
+                if (!closed) continue;
+                queue.drainTo(batch);
+                if (batch.isEmpty()) return;
+            }
+
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    // Writes queued rows and accounts for them; wakes flush() callers
+    private void commit(List<Entry> batch) {
+        boolean ok = writeWithRetry(batch);
+        synchronized (progress) {
+            if (ok) {
+                written += batch.size();
+                batches++;
+                maxBatch = Math.max(maxBatch, batch.size());
+            } else {
+                abandoned += batch.size();
+            }
+            progress.notifyAll();
+        }
+    }
+
+    // Retries transient failures with doubling backoff until the batch commits; false if
+    // the error is permanent or the batch was given up on after close()
+    private boolean writeWithRetry(List<Entry> batch) {
+        long backoff = RETRY_MIN_MILLIS;
+        int attemptsAfterClose = 0;
+        while (true) {
+            SQLException error = write(batch);
+            if (error == null) return true;
+            if (!ConnectionPool.isTransient(error)) {
+                System.out.println("Dropping " + batch.size() + " history row(s): " + error.getMessage());
+                return false;
+            }
+            if (closed && ++attemptsAfterClose >= CLOSE_ATTEMPTS) {
+                System.out.println("Giving up on " + batch.size() + " history row(s) at shutdown");
+                return false;
+            }
+            synchronized (progress) {
+                retries++;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                // close() wakes the writer; the batch still gets its last attempts
+            }
+            backoff = Math.min(backoff * 2, RETRY_MAX_MILLIS);
+        }
+    }
+
+    // True once the batch holds everything a flush() caller is waiting for
+    private boolean flushWaiting(int inBatch) {
+        synchronized (progress) {
+            return flushTarget > written && written + inBatch >= flushTarget;
+        }
+    }
+
+    // One attempt; the error if the transaction did not commit (the pool rolls it back), else null
+    private SQLException write(List<Entry> batch) {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseConnection.connect();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_INSERT)) {
+
+            conn.setAutoCommit(false);
+            for (Entry entry : batch) {
+                bind(pstmt, entry);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+            return null;
+
+        } catch (SQLException e) {
+            WRITE_BATCH.failed(e);
+            System.out.println("Error writing " + batch.size() + " history row(s): " + e.getMessage());
+            return e;
+        } finally {
+            WRITE_BATCH.record(start);
+        }
+    }
+
+    // On the calling thread, with the same retries; these rows were never queued
+    private void writeNow(Entry entry) {
+        writeWithRetry(List.of(entry));
+    }
+
+    private static void bind(PreparedStatement pstmt, Entry entry) throws SQLException {
+        StockRow stock = entry.stock();
+        pstmt.setString(1, stock.symbol());
+        pstmt.setLong(2, Money.toMinor(stock.price()));
+        pstmt.setDouble(3, stock.dayChange());
+        pstmt.setLong(4, Money.toMinor(stock.gainLoss()));
+        pstmt.setString(5, entry.action());
+        pstmt.setLong(6, entry.time());
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * One row of the history table, as read from the database; company and industry are
+ * joined from stocks. time is epoch millis.
+ */
+public record HistoryRow(long id, String company, String industry, String symbol, double price,
+                         double dayChange, double gainLoss, String action, long time) {
+}
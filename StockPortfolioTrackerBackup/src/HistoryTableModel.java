@@ -0,0 +1,144 @@
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Lazy table model for the history table.
+ *
+ * Rows are fetched in fixed-size pages by id keyset (newest first) only when the
+ * table asks for them, and a small LRU keeps the recently viewed pages. The row
+ * count is estimated from MIN(id)/MAX(id) and corrected once the last page is seen.
+ * Cells of a page that is still loading are blank until the page arrives.
+ */
+public class HistoryTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {
+            "Company", "Industry", "Symbol", "Price", "Day Change", "Gain/Loss", "Action", "Date"
+    };
+
+    private final int pageSize;
+    private final int maxPages;
+    private final DataPipeline pipeline = DataPipeline.shared();
+
+    // All state below is only touched on the EDT
+    private final Map<Integer, List<HistoryRow>> pages;
+    private final Set<Integer> pending = new HashSet<>();
+    private long maxId;
+    private int rowCount;
+    private int generation; // drops pages requested before the last reload
+
+    public HistoryTableModel() {
+        this(Integer.getInteger("stocks.history.pageSize", 200), Integer.getInteger("stocks.history.cachedPages", 8));
+    }
+
+    public HistoryTableModel(int pageSize, int maxPages) {
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<HistoryRow>> eldest) {
+                return size() > HistoryTableModel.this.maxPages;
+            }
+        };
+    }
+
+    // Re-read the id range and drop every cached page
+    public void reload() {
+        int gen = ++generation;
+        pipeline.submit(DatabaseConnection::historyIdRange, range -> {
+            if (gen != generation) return;
+            pages.clear();
+            pending.clear();
+            maxId = range[1];
+            rowCount = range[1] == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, range[1] - range[0] + 1);
+            fireTableDataChanged();
+        });
+    }
+
+    public HistoryRow getRow(int rowIndex) {
+        List<HistoryRow> page = pages.get(rowIndex / pageSize);
+        if (page == null) {
+            request(rowIndex / pageSize);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    private void request(int pageIndex) {
+        if (!pending.add(pageIndex)) return;
+
+        // Continue from the previous page's last id when we have it; otherwise assume dense ids
+        List<HistoryRow> previous = pageIndex == 0 ? null : pages.get(pageIndex - 1);
+        long startId = previous != null && !previous.isEmpty()
+                ? previous.get(previous.size() - 1).id() - 1
+                : maxId - (long) pageIndex * pageSize;
+
+        int gen = generation;
+        pipeline.submit(() -> DatabaseConnection.fetchHistoryPage(startId, pageSize), rows -> {
+            if (gen != generation) return;
+            pending.remove(pageIndex);
+            pages.put(pageIndex, rows);
+
+            int first = pageIndex * pageSize;
+            if (rows.size() < pageSize && first + rows.size() < rowCount) {
+                // Reached the oldest row: the estimate counted ids that no longer exist
+                int oldCount = rowCount;
+                rowCount = first + rows.size();
+                fireTableRowsDeleted(rowCount, oldCount - 1);
+            }
+            if (!rows.isEmpty()) {
+                fireTableRowsUpdated(first, first + rows.size() - 1);
+            }
+        });
+    }
+
+    // ------------------------
+    // TableModel
+    // ------------------------
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 3:
+            case 4:
+            case 5: return Double.class;
+            case 7: return Long.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        HistoryRow row = getRow(rowIndex);
+        if (row == null) return null;
+        switch (columnIndex) {
+            case 0: return row.company();
+            case 1: return row.industry();
+            case 2: return row.symbol();
+            case 3: return row.price();
+            case 4: return row.dayChange();
+            case 5: return row.gainLoss();
+            case 6: return row.action();
+            case 7: return row.time();
+            default: throw new IndexOutOfBoundsException("column " + columnIndex);
+        }
+    }
+}
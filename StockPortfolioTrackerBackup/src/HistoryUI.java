@@ -1,22 +1,27 @@
 
 import javax.swing.JOptionPane;
-import javax.swing.table.DefaultTableModel;
 
 
 public class HistoryUI extends javax.swing.JFrame {
 
+    private final HistoryTableModel historyModel = new HistoryTableModel();
+
     /**
      * Creates new form History
      */
   public HistoryUI() {
     initComponents();
+    jTable1.setModel(historyModel); // pages rows in as the user scrolls
+    FormattedCellRenderer.price().install(jTable1, 3);
+    FormattedCellRenderer.percent().install(jTable1, 4);
+    FormattedCellRenderer.signedMoney().install(jTable1, 5);
+    FormattedCellRenderer.time().install(jTable1, 7);
     setLocationRelativeTo(null); // center the frame
     loadHistory();
 }
 
     private void loadHistory() {
-    DefaultTableModel model = (DefaultTableModel) jTable1.getModel();
-    DatabaseConnection.loadHistoryToTable(model);
+    historyModel.reload();
 }
     
 
@@ -183,14 +188,14 @@ public class HistoryUI extends javax.swing.JFrame {
     );
 
     if (confirm == JOptionPane.YES_OPTION) {
-        // Call the DatabaseConnection method
-        DatabaseConnection.clearHistory();
-
-        // Reload the table to reflect changes
-        loadHistory();
-
-        JOptionPane.showMessageDialog(this, "History cleared successfully.");
-    
+        // Call the DatabaseConnection method, then reload the table to reflect changes
+        DataPipeline.shared().submit(() -> {
+            DatabaseConnection.clearHistory();
+            return null;
+        }, ignored -> {
+            loadHistory();
+            JOptionPane.showMessageDialog(this, "History cleared successfully.");
+        });
     }
     }//GEN-LAST:event_jButton1ActionPerformed
 
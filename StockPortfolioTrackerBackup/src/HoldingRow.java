@@ -0,0 +1,19 @@
+/**
+ * One row of the holdings table: a position joined with its market row at the current price.
+ */
+public record HoldingRow(String company, String industry, String symbol, long quantity,
+                         double price, double costBasis, double dayChange) {
+
+    public double marketValue() {
+        return quantity * price;
+    }
+
+    public double gainLoss() {
+        return marketValue() - costBasis;
+    }
+
+    // The trade path still speaks StockRow; sell at the current price
+    public StockRow toStockRow() {
+        return new StockRow(company, industry, symbol, price, dayChange, gainLoss());
+    }
+}
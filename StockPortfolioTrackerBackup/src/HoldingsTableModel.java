@@ -0,0 +1,47 @@
+/**
+ * Owned-stocks table model, keyed by symbol.
+ */
+public class HoldingsTableModel extends KeyedTableModel<HoldingRow> {
+
+    public static final int COMPANY = 0;
+    public static final int INDUSTRY = 1;
+    public static final int SYMBOL = 2;
+    public static final int QUANTITY = 3;
+    public static final int PRICE = 4;
+    public static final int DAY_CHANGE = 5;
+    public static final int GAIN_LOSS = 6;
+
+    public HoldingsTableModel() {
+        super("Company", "Industry", "Symbol", "Qty", "Price", "Day Change", "Gain/Loss");
+    }
+
+    @Override
+    protected String keyOf(HoldingRow row) {
+        return row.symbol();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case QUANTITY: return Long.class;
+            case PRICE:
+            case DAY_CHANGE:
+            case GAIN_LOSS: return Double.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    protected Object valueOf(HoldingRow row, int column) {
+        switch (column) {
+            case COMPANY: return row.company();
+            case INDUSTRY: return row.industry();
+            case SYMBOL: return row.symbol();
+            case QUANTITY: return row.quantity();
+            case PRICE: return row.price();
+            case DAY_CHANGE: return row.dayChange();
+            case GAIN_LOSS: return row.gainLoss();
+            default: throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+}
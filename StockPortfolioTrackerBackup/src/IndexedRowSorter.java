@@ -0,0 +1,518 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableModel;
+
+/**
+ * Row sorter for tables with tens of thousands of live rows.
+ *
+ * TableRowSorter sorts every row again whenever a sorted cell changes, and it
+ * does that for every single cell event. Instead this keeps, per column, an index
+ * of all model rows in ascending order (built the first time the column is sorted
+ * or filtered on). A changed row is moved to its new place in each index by
+ * binary search, so a tick costs O(changed rows * log n) comparisons instead of
+ * a full sort. Cell events only mark rows; the moves happen once per frame in
+ * {@link #flush()}, which runs on its own at the end of the EDT event or can be
+ * called by the code that made the updates. At most one SORTED event is fired per
+ * flush, and only if a row actually moved in the view.
+ *
+ * Filters use indexes too. The category filter (industry) reads a bitset kept per
+ * value. The range filter (price) binary-searches that column's index for both
+ * bounds. The view is then one linear pass over the sorted index, with no
+ * comparisons.
+ *
+ * Cell values are compared as they come from the model: numbers numerically,
+ * everything else as case-insensitive text. Ties keep model order.
+ */
+public class IndexedRowSorter extends RowSorter<TableModel> {
+
+    private static final OperationMetrics.Operation FLUSH = OperationMetrics.operation("rowSorter.flush");
+    private static final OperationMetrics.Operation REBUILD = OperationMetrics.operation("rowSorter.rebuild");
+
+    private final TableModel model;
+    private List<SortKey> sortKeys = List.of();
+
+    // Per column: model rows in ascending order, and each row's position in it; null until used
+    private int[][] orders;
+    private int[][] positions;
+    private double[][] keys; // numeric indexed columns: their values, so comparisons read a flat array
+
+    // Filters; passes is null when nothing is filtered
+    private int categoryColumn = -1;
+    private String category;
+    private Map<String, BitSet> categoryIndex; // for categoryColumn
+    private int rangeColumn = -1;
+    private double rangeMin;
+    private double rangeMax;
+    private BitSet passes;
+
+    // The view
+    private int modelRowCount;
+    private int viewRowCount;
+    private int[] viewToModel = new int[0];
+    private int[] modelToView = new int[0];
+    private int[] previousViewToModel = new int[0]; // reused for the SORTED event, sized to the previous view
+
+    // Rows updated since the last flush, and in which columns (bit per column, -1 for all)
+    private final BitSet pendingRows = new BitSet();
+    private long pendingColumns;
+    private boolean flushQueued;
+    private int[] moving = new int[0];  // flush buffers
+    private int[] scratch = new int[0];
+
+    public IndexedRowSorter(TableModel model) {
+        this.model = model;
+        rebuild();
+    }
+
+    // ------------------------
+    // SORTING
+    // ------------------------
+    @Override
+    public TableModel getModel() {
+        return model;
+    }
+
+    // Ascending first, then toggles; one sort key at a time
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder order = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+                && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            order = SortOrder.DESCENDING;
+        }
+        setSortKeys(List.of(new SortKey(column, order)));
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    // Only the first key is used; switching to a column that was sorted before reuses its index
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> next = keys == null || keys.isEmpty() || keys.get(0).getSortOrder() == SortOrder.UNSORTED
+                ? List.of() : List.of(keys.get(0));
+        if (next.equals(sortKeys)) return;
+        sortKeys = next;
+        fireSortOrderChanged();
+        flushPending();
+        updateView(true);
+    }
+
+    // ------------------------
+    // FILTERS
+    // ------------------------
+    // Rows whose column equals value; null clears it
+    public void setCategoryFilter(int column, String value) {
+        if (value == null) column = -1;
+        if (column != categoryColumn) categoryIndex = null;
+        categoryColumn = column;
+        category = value;
+        refilter();
+    }
+
+    // Rows with min <= column <= max; pass infinities for an open end, or column -1 to clear
+    public void setRangeFilter(int column, double min, double max) {
+        rangeColumn = column;
+        rangeMin = min;
+        rangeMax = max;
+        refilter();
+    }
+
+    public void clearFilters() {
+        categoryColumn = -1;
+        category = null;
+        categoryIndex = null;
+        rangeColumn = -1;
+        refilter();
+    }
+
+    // The distinct values of a column, sorted, e.g. for a filter menu
+    public List<String> categories(int column) {
+        TreeSet<String> values = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (int row = 0; row < modelRowCount; row++) {
+            Object value = model.getValueAt(row, column);
+            if (value != null) values.add(value.toString());
+        }
+        return new ArrayList<>(values);
+    }
+
+    private void refilter() {
+        flushPending();
+        passes = computePasses();
+        updateView(true);
+    }
+
+    private BitSet computePasses() {
+        if (categoryColumn < 0 && rangeColumn < 0) return null;
+        BitSet result = new BitSet(modelRowCount);
+        if (categoryColumn >= 0) {
+            BitSet rows = categoryIndex().get(category.toLowerCase());
+            if (rows != null) result.or(rows);
+        } else {
+            result.set(0, modelRowCount);
+        }
+        if (rangeColumn >= 0) {
+            // The rows in range are one contiguous slice of the column's index
+            int[] order = order(rangeColumn);
+            int from = lowerBound(order, rangeColumn, rangeMin, false);
+            int to = lowerBound(order, rangeColumn, rangeMax, true);
+            BitSet inRange = new BitSet(modelRowCount);
+            for (int i = from; i < to; i++) inRange.set(order[i]);
+            result.and(inRange);
+        }
+        return result;
+    }
+
+    private Map<String, BitSet> categoryIndex() {
+        if (categoryIndex == null) {
+            categoryIndex = new HashMap<>();
+            for (int row = 0; row < modelRowCount; row++) {
+                Object value = model.getValueAt(row, categoryColumn);
+                if (value == null) continue;
+                categoryIndex.computeIfAbsent(value.toString().toLowerCase(), k -> new BitSet()).set(row);
+            }
+        }
+        return categoryIndex;
+    }
+
+    // First index whose value is >= bound, or > bound when after is set; non-numbers sort as NaN
+    private int lowerBound(int[] order, int column, double bound, boolean after) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Double.compare(number(order[mid], column), bound);
+            if (c < 0 || (after && c == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private boolean passes(int row) {
+        if (categoryColumn >= 0) {
+            Object value = model.getValueAt(row, categoryColumn);
+            if (value == null || !value.toString().equalsIgnoreCase(category)) return false;
+        }
+        if (rangeColumn >= 0) {
+            double value = number(row, rangeColumn);
+            if (!(value >= rangeMin && value <= rangeMax)) return false;
+        }
+        return true;
+    }
+
+    // ------------------------
+    // MODEL EVENTS (from JTable)
+    // ------------------------
+    @Override
+    public void modelStructureChanged() {
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() >= model.getColumnCount()) sortKeys = List.of();
+        rebuild();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        rebuild();
+    }
+
+    // KeyedTableModel only appends and removes blocks on a snapshot, so these just rebuild
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        rebuild();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        rebuild();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        markPending(firstRow, endRow, -1L);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        markPending(firstRow, endRow, column < 64 ? 1L << column : -1L);
+    }
+
+    private void markPending(int firstRow, int endRow, long columns) {
+        pendingRows.set(firstRow, endRow + 1);
+        pendingColumns |= columns;
+        if (!flushQueued) {
+            flushQueued = true;
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    // ------------------------
+    // FLUSH
+    // ------------------------
+    // Moves the rows updated since the last call into place; cheap when nothing is pending
+    public void flush() {
+        flushQueued = false;
+        if (pendingRows.isEmpty()) return;
+        long start = System.nanoTime();
+        try {
+            updateView(flushPending());
+        } finally {
+            FLUSH.record(start);
+        }
+    }
+
+    // Repositions pending rows in every index and re-checks their filter; true if the view may have changed
+    private boolean flushPending() {
+        if (pendingRows.isEmpty()) return false;
+        boolean changed = false;
+        int pendingCount = pendingRows.cardinality();
+        for (int column = 0; column < keys.length; column++) {
+            if (keys[column] == null || (pendingColumns & (1L << column)) == 0) continue;
+            for (int row = pendingRows.nextSetBit(0); row >= 0; row = pendingRows.nextSetBit(row + 1)) {
+                keys[column][row] = number(row, column);
+            }
+        }
+        for (int column = 0; column < orders.length; column++) {
+            if (orders[column] == null || (pendingColumns & (1L << column)) == 0) continue;
+            if (pendingCount == 1) {
+                changed |= reposition(column, pendingRows.nextSetBit(0));
+            } else {
+                merge(column, pendingCount);
+                changed = true;
+            }
+        }
+        if (categoryIndex != null && (pendingColumns & (1L << categoryColumn)) != 0) {
+            categoryIndex = null; // a category changed: rare, rebuild on next use
+        }
+        if (passes != null) {
+            for (int row = pendingRows.nextSetBit(0); row >= 0; row = pendingRows.nextSetBit(row + 1)) {
+                boolean now = passes(row);
+                if (now != passes.get(row)) {
+                    passes.set(row, now);
+                    changed = true;
+                }
+            }
+        }
+        pendingRows.clear();
+        pendingColumns = 0;
+        return changed;
+    }
+
+    // One changed row: moves it to its place in a column's index; false if it was already there
+    private boolean reposition(int column, int row) {
+        int[] order = orders[column];
+        int[] position = positions[column];
+        int from = position[row];
+        int n = order.length;
+        if (from > 0 && compare(column, order[from - 1], row) > 0) {
+            // Moves left: first index in [0, from) that sorts after the row
+            int at = upperBound(order, 0, from - 1, column, row);
+            System.arraycopy(order, at, order, at + 1, from - at);
+            order[at] = row;
+            for (int i = at; i <= from; i++) position[order[i]] = i;
+            return true;
+        }
+        if (from < n - 1 && compare(column, order[from + 1], row) < 0) {
+            // Moves right: up to the last index in (from, n) that sorts before the row
+            int at = upperBound(order, from + 1, n, column, row) - 1;
+            System.arraycopy(order, from + 1, order, from, at - from);
+            order[at] = row;
+            for (int i = from; i <= at; i++) position[order[i]] = i;
+            return true;
+        }
+        return false;
+    }
+
+    // Several changed rows: takes them out of the index, sorts just them and merges them back.
+    // Each is placed with a binary search over the unchanged rows, which are still in order
+    private void merge(int column, int pendingCount) {
+        int[] order = orders[column];
+        int n = order.length;
+        if (moving.length < pendingCount) moving = new int[pendingCount];
+        int k = 0;
+        for (int row = pendingRows.nextSetBit(0); row >= 0; row = pendingRows.nextSetBit(row + 1)) {
+            moving[k++] = row;
+        }
+        sortRows(moving, k, column);
+
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (!pendingRows.get(order[i])) order[kept++] = order[i];
+        }
+        // From the back: each changed row lands after the unchanged rows that sort before it
+        int write = n;
+        int end = kept;
+        for (int j = k - 1; j >= 0; j--) {
+            int at = upperBound(order, 0, end, column, moving[j]);
+            write -= end - at;
+            System.arraycopy(order, at, order, write, end - at);
+            order[--write] = moving[j];
+            end = at;
+        }
+        int[] position = positions[column];
+        for (int i = 0; i < n; i++) position[order[i]] = i;
+    }
+
+    // First index in [from, to) whose row sorts after the given row
+    private int upperBound(int[] order, int from, int to, int column, int row) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(column, order[mid], row) > 0) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    // ------------------------
+    // VIEW
+    // ------------------------
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            modelRowCount = model.getRowCount();
+            orders = new int[model.getColumnCount()][];
+            positions = new int[model.getColumnCount()][];
+            keys = new double[model.getColumnCount()][];
+            categoryIndex = null;
+            pendingRows.clear();
+            pendingColumns = 0;
+            passes = computePasses();
+            updateView(true);
+        } finally {
+            REBUILD.record(start);
+        }
+    }
+
+    // Derives the view from the sort column's index and the filter; fires SORTED if asked and it changed
+    private void updateView(boolean fire) {
+        int previousCount = viewRowCount;
+        if (previousViewToModel.length != previousCount) previousViewToModel = new int[previousCount];
+        int[] previous = previousViewToModel;
+        System.arraycopy(viewToModel, 0, previous, 0, previousCount);
+
+        if (viewToModel.length < modelRowCount) viewToModel = new int[modelRowCount];
+        if (modelToView.length != modelRowCount) modelToView = new int[modelRowCount];
+        Arrays.fill(modelToView, -1);
+
+        int[] order = sortKeys.isEmpty() ? null : order(sortKeys.get(0).getColumn());
+        boolean descending = !sortKeys.isEmpty() && sortKeys.get(0).getSortOrder() == SortOrder.DESCENDING;
+        int count = 0;
+        for (int i = 0; i < modelRowCount; i++) {
+            int row = order == null ? i : order[descending ? modelRowCount - 1 - i : i];
+            if (passes != null && !passes.get(row)) continue;
+            viewToModel[count] = row;
+            modelToView[row] = count++;
+        }
+        viewRowCount = count;
+
+        if (!fire) return;
+        if (count == previousCount && Arrays.equals(viewToModel, 0, count, previous, 0, count)) return;
+        fireRowSorterChanged(previous);
+    }
+
+    private int[] order(int column) {
+        if (orders[column] == null) buildOrder(column);
+        return orders[column];
+    }
+
+    private void buildOrder(int column) {
+        if (Number.class.isAssignableFrom(model.getColumnClass(column))) {
+            double[] values = new double[modelRowCount];
+            for (int row = 0; row < modelRowCount; row++) values[row] = number(row, column);
+            keys[column] = values;
+        }
+        int[] order = new int[modelRowCount];
+        int[] position = new int[modelRowCount];
+        for (int i = 0; i < modelRowCount; i++) order[i] = i;
+        sortRows(order, modelRowCount, column);
+        for (int i = 0; i < modelRowCount; i++) position[order[i]] = i;
+        orders[column] = order;
+        positions[column] = position;
+    }
+
+    // Merge sort of row numbers by a column, without boxing them
+    private void sortRows(int[] rows, int length, int column) {
+        if (scratch.length < length) scratch = new int[length];
+        sortRows(rows, 0, length, column);
+    }
+
+    private void sortRows(int[] rows, int from, int to, int column) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        sortRows(rows, from, mid, column);
+        sortRows(rows, mid, to, column);
+        if (compare(column, rows[mid - 1], rows[mid]) <= 0) return; // already in order
+        System.arraycopy(rows, from, scratch, from, mid - from);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            rows[out++] = compare(column, scratch[left], rows[right]) <= 0 ? scratch[left++] : rows[right++];
+        }
+        System.arraycopy(scratch, left, rows, out, mid - left);
+    }
+
+    // ------------------------
+    // COMPARISON
+    // ------------------------
+    private int compare(int column, int a, int b) {
+        double[] values = keys[column];
+        if (values != null) {
+            int c = Double.compare(values[a], values[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        }
+        Object x = model.getValueAt(a, column);
+        Object y = model.getValueAt(b, column);
+        int c;
+        if (x instanceof Number && y instanceof Number) {
+            c = Double.compare(((Number) x).doubleValue(), ((Number) y).doubleValue());
+        } else if (x == null || y == null) {
+            c = x == null ? (y == null ? 0 : -1) : 1;
+        } else {
+            c = x.toString().compareToIgnoreCase(y.toString());
+        }
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    private double number(int row, int column) {
+        Object value = model.getValueAt(row, column);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    // ------------------------
+    // RowSorter
+    // ------------------------
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= viewRowCount) throw new IndexOutOfBoundsException("Invalid index " + index);
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= modelRowCount) throw new IndexOutOfBoundsException("Invalid index " + index);
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewRowCount;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelRowCount;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Minimal JSON writer for the server's responses; the app has no JSON library.
+ *
+ * Callers append fields in order and close what they open:
+ * {@code new Json().beginObject().field("user", u).field("balance", b).endObject()}.
+ */
+public final class Json {
+
+    private final StringBuilder sb = new StringBuilder();
+    private boolean needComma;
+
+    public Json beginObject() {
+        separate();
+        sb.append('{');
+        needComma = false;
+        return this;
+    }
+
+    public Json endObject() {
+        sb.append('}');
+        needComma = true;
+        return this;
+    }
+
+    public Json beginArray() {
+        separate();
+        sb.append('[');
+        needComma = false;
+        return this;
+    }
+
+    public Json endArray() {
+        sb.append(']');
+        needComma = true;
+        return this;
+    }
+
+    // Starts a field whose value is an object or array opened next
+    public Json name(String name) {
+        separate();
+        quote(name);
+        sb.append(':');
+        needComma = false;
+        return this;
+    }
+
+    public Json field(String name, String value) {
+        name(name);
+        if (value == null) {
+            sb.append("null");
+        } else {
+            quote(value);
+        }
+        needComma = true;
+        return this;
+    }
+
+    public Json field(String name, long value) {
+        name(name);
+        sb.append(value);
+        needComma = true;
+        return this;
+    }
+
+    public Json field(String name, double value) {
+        name(name);
+        sb.append(Double.isFinite(value) ? Double.toString(value) : "null");
+        needComma = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+
+    private void separate() {
+        if (needComma) sb.append(',');
+    }
+
+    private void quote(String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
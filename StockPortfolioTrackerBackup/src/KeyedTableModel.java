@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model whose rows are identified by a key (the symbol for our tables).
+ *
+ * {@link #apply(List)} diffs a new snapshot against the current rows: changed
+ * cells fire cell updates, and only added or removed keys fire row events,
+ * so selection and scroll position survive a refresh.
+ *
+ * Cell values are computed once when a row arrives or changes, so painting reads
+ * them without boxing numbers again. Each numeric cell also remembers when it last
+ * moved and which way, for the up/down flash in {@link FormattedCellRenderer}.
+ */
+public abstract class KeyedTableModel<R> extends AbstractTableModel {
+
+    private static final class Slot<R> {
+        R row;
+        final Object[] cells;
+        long[] moved; // per column: millis of the last move, negated for a down move; null until one moves
+
+        Slot(R row, Object[] cells) {
+            this.row = row;
+            this.cells = cells;
+        }
+    }
+
+    private final String[] columns;
+    private final List<Slot<R>> rows = new ArrayList<>();
+    private final Map<String, Integer> indexByKey = new HashMap<>();
+
+    protected KeyedTableModel(String... columns) {
+        this.columns = columns;
+    }
+
+    protected abstract String keyOf(R row);
+
+    protected abstract Object valueOf(R row, int column);
+
+    // ------------------------
+    // SNAPSHOT DIFF
+    // ------------------------
+    public void apply(List<R> snapshot) {
+        Map<String, R> incoming = new HashMap<>(snapshot.size() * 2);
+        for (R row : snapshot) {
+            incoming.put(keyOf(row), row);
+        }
+
+        removeMissing(incoming.keySet());
+
+        // Update rows that are still present, one event per changed cell
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rows.size(); i++) {
+            replace(i, incoming.get(keyOf(rows.get(i).row)), now);
+        }
+
+        // Append new keys in snapshot order
+        int firstNew = rows.size();
+        for (R row : snapshot) {
+            String key = keyOf(row);
+            if (!indexByKey.containsKey(key)) {
+                indexByKey.put(key, rows.size());
+                rows.add(new Slot<>(row, cellsOf(row)));
+            }
+        }
+        if (rows.size() > firstNew) {
+            fireTableRowsInserted(firstNew, rows.size() - 1);
+        }
+    }
+
+    // One row replaced in place, e.g. with a live price; rows whose key isn't in the table are ignored
+    public void update(R row) {
+        Integer index = indexByKey.get(keyOf(row));
+        if (index != null) replace(index, row, System.currentTimeMillis());
+    }
+
+    private void replace(int index, R next, long now) {
+        Slot<R> slot = rows.get(index);
+        if (next.equals(slot.row)) return;
+        slot.row = next;
+        for (int col = 0; col < columns.length; col++) {
+            Object before = slot.cells[col];
+            Object after = valueOf(next, col);
+            if (Objects.equals(before, after)) continue;
+            slot.cells[col] = after;
+            recordMove(slot, col, before, after, now);
+            fireTableCellUpdated(index, col);
+        }
+    }
+
+    private Object[] cellsOf(R row) {
+        Object[] cells = new Object[columns.length];
+        for (int col = 0; col < columns.length; col++) {
+            cells[col] = valueOf(row, col);
+        }
+        return cells;
+    }
+
+    private void recordMove(Slot<R> slot, int column, Object before, Object after, long now) {
+        if (!(before instanceof Number) || !(after instanceof Number)) return;
+        int direction = Double.compare(((Number) after).doubleValue(), ((Number) before).doubleValue());
+        if (direction == 0) return;
+        if (slot.moved == null) slot.moved = new long[columns.length];
+        slot.moved[column] = direction > 0 ? now : -now;
+    }
+
+    private void removeMissing(Set<String> keep) {
+        Set<String> gone = new HashSet<>(indexByKey.keySet());
+        gone.removeAll(keep);
+        if (gone.isEmpty()) return;
+
+        // Walk bottom-up so indexes of rows still to be removed stay valid,
+        // and fire one event per contiguous block
+        int end = -1;
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            boolean remove = gone.contains(keyOf(rows.get(i).row));
+            if (remove && end == -1) {
+                end = i;
+            }
+            if (end != -1 && (!remove || i == 0)) {
+                int start = remove ? i : i + 1;
+                rows.subList(start, end + 1).clear();
+                fireTableRowsDeleted(start, end);
+                end = -1;
+            }
+        }
+        reindex();
+    }
+
+    private void reindex() {
+        indexByKey.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            indexByKey.put(keyOf(rows.get(i).row), i);
+        }
+    }
+
+    // ------------------------
+    // LOOKUP
+    // ------------------------
+    public R getRow(int rowIndex) {
+        return rows.get(rowIndex).row;
+    }
+
+    public int indexOf(String key) {
+        Integer index = indexByKey.get(key);
+        return index == null ? -1 : index;
+    }
+
+    // +1 / -1 if the cell moved up / down within the last windowMillis, else 0
+    public int recentMove(int rowIndex, int column, long now, long windowMillis) {
+        long[] moved = rows.get(rowIndex).moved;
+        if (moved == null || moved[column] == 0) return 0;
+        long at = moved[column];
+        if (now - Math.abs(at) >= windowMillis) return 0;
+        return at > 0 ? 1 : -1;
+    }
+
+    // ------------------------
+    // TableModel
+    // ------------------------
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return rows.get(rowIndex).cells[columnIndex];
+    }
+}
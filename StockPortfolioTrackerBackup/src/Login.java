@@ -7,6 +7,7 @@ public class Login extends javax.swing.JFrame {
 
 
     public Login() {
+        AppBootstrap.start().awaitLookAndFeel(); // Nimbus before the components are created
         initComponents();
         setLocationRelativeTo(null);
         jLabel6.setCursor(new java.awt.Cursor(java.awt.Cursor.HAND_CURSOR)); // hand cursor
@@ -194,7 +195,6 @@ public class Login extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
-     jButton1.addActionListener(e -> {
     String username = jFormattedTextField3.getText().trim();
     String password = jFormattedTextField4.getText().trim();
 
@@ -206,11 +206,15 @@ public class Login extends javax.swing.JFrame {
         return;
     }
 
-    boolean valid = DatabaseConnection.checkLogin(username, password);
+    jButton1.setEnabled(false); // one login check at a time
+    // A valid login opens the session: balance and holdings are read once, here
+    DataPipeline.shared().submit(
+            () -> DatabaseConnection.checkLogin(username, password) ? UserSession.open(username) : null, session -> {
+    jButton1.setEnabled(true);
 
-   if (valid) {
+   if (session != null) {
     Stock mainFrame = new Stock();
-    mainFrame.setLoggedInUser(username);   // now this works
+    mainFrame.setSession(session);   // now this works
     mainFrame.setVisible(true);
     this.dispose();
 
@@ -223,7 +227,7 @@ public class Login extends javax.swing.JFrame {
                 "Login Failed",
                 JOptionPane.ERROR_MESSAGE);
     }
-});
+    });
 
 
 
@@ -4,6 +4,17 @@
 
 public class Main {
     public static void main(String[] args) {
+        // Main --server [--port N]: HTTP/JSON API only, no window
+        if (java.util.Arrays.asList(args).contains("--server")) {
+            try {
+                PortfolioServer.main(args);
+            } catch (java.io.IOException | IllegalStateException e) {
+                System.out.println("Could not start the server: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        AppBootstrap.start().awaitLookAndFeel();
         java.awt.EventQueue.invokeLater(() -> {
             new Stock().setVisible(true);
         });
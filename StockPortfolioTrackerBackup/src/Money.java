@@ -0,0 +1,19 @@
+/**
+ * Money and prices are stored as whole centavos (INTEGER columns) and handled as doubles
+ * in the app. Values are converted here, once, on the way in and out of the database.
+ */
+public final class Money {
+
+    public static final int MINOR_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    public static long toMinor(double amount) {
+        return Math.round(amount * MINOR_PER_UNIT);
+    }
+
+    public static double fromMinor(long minor) {
+        return minor / (double) MINOR_PER_UNIT;
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.TimeZone;
+
+/**
+ * Number and time formatting into a caller's StringBuilder, for code that runs on
+ * every tick or every painted cell. Unlike String.format nothing is allocated as
+ * long as the builder has room.
+ */
+public final class NumberText {
+
+    private static final long[] POWERS = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    private static final TimeZone ZONE = TimeZone.getDefault(); // getDefault() clones on every call
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private NumberText() {
+    }
+
+    // -1234.5 -> "-1234.50", or "-1,234.50" with grouping
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int decimals, boolean grouping) {
+        if (!Double.isFinite(value)) return sb.append('-');
+        long scaled = Math.round(value * POWERS[decimals]);
+        if (scaled < 0) sb.append('-');
+        return appendUnsigned(sb, Math.abs(scaled), decimals, grouping);
+    }
+
+    // 230 -> "+$230.00", -45 -> "-$45.00"; prefix goes between the sign and the digits
+    public static StringBuilder appendSigned(StringBuilder sb, double value, String prefix, int decimals, boolean grouping) {
+        if (!Double.isFinite(value)) return sb.append('-');
+        long scaled = Math.round(value * POWERS[decimals]);
+        sb.append(scaled < 0 ? '-' : '+').append(prefix);
+        return appendUnsigned(sb, Math.abs(scaled), decimals, grouping);
+    }
+
+    // Epoch millis as "yyyy-MM-dd HH:mm:ss" in the default time zone
+    public static StringBuilder appendDateTime(StringBuilder sb, long epochMillis) {
+        long local = epochMillis + ZONE.getOffset(epochMillis);
+        long days = Math.floorDiv(local, MILLIS_PER_DAY);
+        int secondOfDay = (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian), see H. Hinnant's chrono algorithms
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        sb.append(year).append('-');
+        pad2(sb, month).append('-');
+        pad2(sb, day).append(' ');
+        pad2(sb, secondOfDay / 3600).append(':');
+        pad2(sb, secondOfDay / 60 % 60).append(':');
+        return pad2(sb, secondOfDay % 60);
+    }
+
+    // ------------------------
+    // INTERNALS
+    // ------------------------
+    private static StringBuilder appendUnsigned(StringBuilder sb, long scaled, int decimals, boolean grouping) {
+        long whole = scaled / POWERS[decimals];
+        if (grouping) {
+            appendGrouped(sb, whole);
+        } else {
+            sb.append(whole);
+        }
+        if (decimals > 0) {
+            sb.append('.');
+            long fraction = scaled % POWERS[decimals];
+            for (int i = decimals - 1; i >= 0; i--) {
+                sb.append((char) ('0' + fraction / POWERS[i] % 10));
+            }
+        }
+        return sb;
+    }
+
+    private static void appendGrouped(StringBuilder sb, long whole) {
+        if (whole < 1000) {
+            sb.append(whole);
+            return;
+        }
+        appendGrouped(sb, whole / 1000);
+        sb.append(',');
+        long group = whole % 1000;
+        if (group < 100) sb.append('0');
+        if (group < 10) sb.append('0');
+        sb.append(group);
+    }
+
+    private static StringBuilder pad2(StringBuilder sb, int value) {
+        if (value < 10) sb.append('0');
+        return sb.append(value);
+    }
+}
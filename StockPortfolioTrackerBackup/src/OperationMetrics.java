@@ -0,0 +1,159 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Call counts, error counts and latency for every data operation.
+ *
+ * Each operation is registered once as an MXBean named
+ * {@code stocks:type=Operation,name=<operation>} (visible in JConsole / VisualVM)
+ * and listed by {@link #snapshot()} for the in-app diagnostics window.
+ *
+ * Usage, at the top of a method:
+ * <pre>
+ *     long start = System.nanoTime();
+ *     try (...) { ... }
+ *     catch (SQLException e) { OP.failed(e); ... }
+ *     finally { OP.record(start); }
+ * </pre>
+ */
+public final class OperationMetrics {
+
+    public interface OperationMXBean {
+        String getName();
+
+        long getCount();
+
+        long getErrorCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP99Millis();
+
+        double getP999Millis();
+
+        double getMaxMillis();
+
+        String getLastError();
+    }
+
+    public record Snapshot(String name, long count, long errors, double meanMillis, double p50Millis,
+                           double p99Millis, double p999Millis, double maxMillis, String lastError) {
+    }
+
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+
+    private OperationMetrics() {
+    }
+
+    public static Operation operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, n -> {
+            Operation op = new Operation(n);
+            register(op);
+            return op;
+        });
+    }
+
+    // Every operation recorded so far, slowest p99 first
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> rows = new ArrayList<>();
+        for (Operation op : OPERATIONS.values()) {
+            rows.add(op.snapshot());
+        }
+        rows.sort((a, b) -> Double.compare(b.p99Millis(), a.p99Millis()));
+        return rows;
+    }
+
+    private static void register(Operation op) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("stocks:type=Operation,name=" + ObjectName.quote(op.name));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(op, name);
+            }
+        } catch (JMException e) {
+            System.out.println("Could not register metrics for " + op.name + ": " + e.getMessage());
+        }
+    }
+
+    // ------------------------
+    // OPERATION
+    // ------------------------
+    public static final class Operation implements OperationMXBean {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private volatile String lastError = "";
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public void record(long startNanos) {
+            latency.record(System.nanoTime() - startNanos);
+        }
+
+        public void failed(Throwable error) {
+            errors.increment();
+            lastError = error.getClass().getSimpleName() + ": " + error.getMessage();
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(name, getCount(), getErrorCount(), getMeanMillis(), getP50Millis(),
+                    getP99Millis(), getP999Millis(), getMaxMillis(), lastError);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.count();
+        }
+
+        @Override
+        public long getErrorCount() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.meanNanos() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.percentileNanos(50) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.percentileNanos(99) / 1e6;
+        }
+
+        @Override
+        public double getP999Millis() {
+            return latency.percentileNanos(99.9) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.maxNanos() / 1e6;
+        }
+
+        @Override
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Headless HTTP/JSON front end over the same DatabaseConnection logic the Swing frames use.
+ *
+ *   GET  /api/quotes                         market rows at live engine prices
+ *   GET  /api/positions?user=U&password=P    holdings, served from the position cache
+ *   GET  /api/balance?user=U&password=P
+ *   POST /api/trade    user=U&password=P&symbol=S&side=buy|sell   (query string or form body);
+ *                                            a filled trade returns the balance it committed
+ *   GET  /api/history?before=ID&limit=N     newest first, keyset paged like HistoryUI;
+ *                                            optional &from=MS&to=MS epoch-millis range
+ *   GET  /api/ticks?symbol=S&from=MS&to=MS&limit=N   stored ticks, oldest first; needs
+ *                                            -Dstocks.ticks.dir (see {@link TickStore})
+ *
+ * Live prices are pushed by {@link QuoteFeed} on its own port (GET /api/stream).
+ *
+ * No request scans the stocks table. Quotes and positions combine the rows read once
+ * at startup (only prices change at runtime, and those come from the engine) with the
+ * engine's latest prices; a trade reads just its own row.
+ *
+ * Requests run one virtual thread each on Java 21+, or on stocks.server.threads
+ * platform threads on 17. Every endpoint that touches an account (positions, balance,
+ * trade) is checked against the user's password. The server listens on loopback only
+ * unless -Dstocks.server.bind names an address to listen on instead (0.0.0.0 for all);
+ * passwords then cross the network in clear text, so put TLS in front of it.
+ *
+ * Started by {@code Main --server [--port N] [--feed-port N]} (default
+ * -Dstocks.server.port=8080, -Dstocks.feed.port=8081).
+ */
+public final class PortfolioServer {
+
+    private static final int MAX_HISTORY_PAGE = 500;
+    private static final int MAX_TICKS_PAGE = 10_000;
+
+    static {
+        // HttpServer writes headers and body separately; with Nagle on, small replies
+        // wait ~40 ms for the client's delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<StockRow> market = DatabaseConnection.fetchStocks(); // read once; only prices change at runtime
+
+    public PortfolioServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bindAddress(), port), 0);
+        executor = Threads.newPerTaskExecutor("http", Integer.getInteger("stocks.server.threads", 64));
+        server.setExecutor(executor);
+        route("/api/quotes", "GET", this::quotes);
+        route("/api/positions", "GET", this::positions);
+        route("/api/balance", "GET", this::balance);
+        route("/api/trade", "POST", this::trade);
+        route("/api/history", "GET", this::history);
+        route("/api/ticks", "GET", this::ticks);
+    }
+
+    // Loopback unless explicitly opened up
+    private static InetAddress bindAddress() throws IOException {
+        String bind = System.getProperty("stocks.server.bind");
+        return bind == null || bind.isBlank() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = Integer.getInteger("stocks.server.port", 8080);
+        String feedPort = System.getProperty("stocks.feed.port", "8081");
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--port")) port = Integer.parseInt(args[i + 1]);
+            if (args[i].equals("--feed-port")) feedPort = args[i + 1];
+        }
+        System.setProperty("stocks.feed.port", feedPort); // read by AppBootstrap
+
+        AppBootstrap.start().awaitStorage();
+        PortfolioServer server = new PortfolioServer(port);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            QuoteFeed feed = QuoteFeed.shared();
+            if (feed != null) feed.close();
+        }, "http-shutdown"));
+        System.out.println("Portfolio server listening on http://" + server.server.getAddress().getHostString()
+                + ":" + server.port() + "/api/");
+        QuoteFeed feed = QuoteFeed.shared();
+        if (feed != null) {
+            System.out.println("Quote stream on http://localhost:" + feed.port() + "/api/stream");
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // ------------------------
+    // ENDPOINTS
+    // ------------------------
+    private Response quotes(Map<String, String> params) {
+        Json json = new Json().beginArray();
+        for (StockRow row : liveMarket()) {
+            json.beginObject()
+                    .field("symbol", row.symbol())
+                    .field("company", row.company())
+                    .field("industry", row.industry())
+                    .field("price", row.price())
+                    .field("dayChange", row.dayChange())
+                    .endObject();
+        }
+        return Response.ok(json.endArray());
+    }
+
+    private Response positions(Map<String, String> params) {
+        String user = authenticate(params);
+        Json json = new Json().beginArray();
+        for (HoldingRow row : DatabaseConnection.holdings(user, liveMarket())) {
+            json.beginObject()
+                    .field("symbol", row.symbol())
+                    .field("company", row.company())
+                    .field("quantity", row.quantity())
+                    .field("price", row.price())
+                    .field("costBasis", row.costBasis())
+                    .field("marketValue", row.marketValue())
+                    .field("gainLoss", row.gainLoss())
+                    .endObject();
+        }
+        return Response.ok(json.endArray());
+    }
+
+    private Response balance(Map<String, String> params) {
+        String user = authenticate(params);
+        return Response.ok(new Json().beginObject()
+                .field("user", user)
+                .field("balance", DatabaseConnection.getUserBalance(user))
+                .endObject());
+    }
+
+    private Response trade(Map<String, String> params) {
+        String user = authenticate(params);
+        String symbol = require(params, "symbol");
+        String side = require(params, "side");
+        StockRow stock = PortfolioSnapshot.liveStock(symbol);
+        if (stock == null) return Response.error(404, "Unknown symbol " + symbol);
+
+        // The balance this trade committed, not a later read that could include other requests
+        double[] balance = new double[1];
+        TradeResult result;
+        if (side.equalsIgnoreCase("buy")) {
+            result = DatabaseConnection.executeBuy(user, stock, amount -> balance[0] = amount);
+        } else if (side.equalsIgnoreCase("sell")) {
+            result = DatabaseConnection.executeSell(user, stock, amount -> balance[0] = amount);
+        } else {
+            return Response.error(400, "side must be buy or sell");
+        }
+        int status = result == TradeResult.FILLED ? 200 : result == TradeResult.FAILED ? 500 : 409;
+        Json json = new Json().beginObject()
+                .field("result", result.name())
+                .field("symbol", stock.symbol())
+                .field("price", stock.price());
+        if (result == TradeResult.FILLED) json.field("balance", balance[0]);
+        return new Response(status, json.endObject());
+    }
+
+    private Response history(Map<String, String> params) {
+        long before = params.containsKey("before") ? Long.parseLong(params.get("before")) : Long.MAX_VALUE;
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 100;
+        long from = params.containsKey("from") ? Long.parseLong(params.get("from")) : Long.MIN_VALUE;
+        long to = params.containsKey("to") ? Long.parseLong(params.get("to")) : Long.MAX_VALUE;
+        List<HistoryRow> rows = DatabaseConnection.fetchHistoryPage(before == Long.MAX_VALUE ? before : before - 1,
+                from, to, Math.max(1, Math.min(limit, MAX_HISTORY_PAGE)));
+
+        Json json = new Json().beginObject().name("rows").beginArray();
+        for (HistoryRow row : rows) {
+            json.beginObject()
+                    .field("id", row.id())
+                    .field("symbol", row.symbol())
+                    .field("company", row.company())
+                    .field("price", row.price())
+                    .field("action", row.action())
+                    .field("time", row.time())
+                    .endObject();
+        }
+        json.endArray();
+        if (!rows.isEmpty()) json.field("next", rows.get(rows.size() - 1).id()); // pass back as before=
+        return Response.ok(json.endObject());
+    }
+
+    // Pages forward in time: pass next back as from=
+    private Response ticks(Map<String, String> params) {
+        String symbol = require(params, "symbol");
+        TickStore store = TickStore.shared();
+        if (store == null) return Response.error(404, "Tick history is off; start with -Dstocks.ticks.dir");
+        long from = params.containsKey("from") ? Long.parseLong(params.get("from")) : Long.MIN_VALUE;
+        long to = params.containsKey("to") ? Long.parseLong(params.get("to")) : Long.MAX_VALUE;
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 1000;
+        TickSeries series = store.range(symbol, from, to, Math.max(1, Math.min(limit, MAX_TICKS_PAGE)));
+
+        Json json = new Json().beginObject().field("symbol", symbol).name("ticks").beginArray();
+        for (int i = 0; i < series.size(); i++) {
+            json.beginObject()
+                    .field("time", series.time(i))
+                    .field("price", series.price(i))
+                    .endObject();
+        }
+        json.endArray();
+        if (series.size() > 0) json.field("next", series.time(series.size() - 1) + 1);
+        return Response.ok(json.endObject());
+    }
+
+    // Startup rows at the engine's latest prices, by id instead of a lookup per symbol
+    private List<StockRow> liveMarket() {
+        PriceEngine engine = PriceEngine.shared();
+        double[] prices = engine.copyPrices(null);
+        List<StockRow> live = new ArrayList<>(market.size());
+        for (StockRow row : market) {
+            int id = engine.idOf(row.symbol());
+            live.add(id < 0 ? row : new StockRow(row.company(), row.industry(), row.symbol(),
+                    prices[id], row.dayChange(), row.gainLoss()));
+        }
+        return live;
+    }
+
+    // ------------------------
+    // PLUMBING
+    // ------------------------
+    private record Response(int status, Json body) {
+        static Response ok(Json body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, new Json().beginObject().field("error", message).endObject());
+        }
+    }
+
+    private static final class BadRequest extends RuntimeException {
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Unauthorized extends RuntimeException {
+        Unauthorized() {
+            super("Invalid user or password");
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, String> params);
+    }
+
+    private void route(String path, String method, Endpoint endpoint) {
+        OperationMetrics.Operation op = OperationMetrics.operation("http." + method + " " + path);
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            Response response;
+            try {
+                if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                    exchange.getResponseHeaders().add("Allow", method);
+                    response = Response.error(405, "Use " + method);
+                } else {
+                    response = endpoint.handle(params(exchange));
+                }
+            } catch (BadRequest | NumberFormatException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (Unauthorized e) {
+                response = Response.error(401, e.getMessage());
+            } catch (RuntimeException e) {
+                op.failed(e);
+                e.printStackTrace();
+                response = Response.error(500, "Internal error");
+            }
+            try {
+                send(exchange, response);
+            } finally {
+                op.record(start);
+            }
+        });
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) throw new BadRequest("Missing parameter: " + name);
+        return value;
+    }
+
+    // The user= account, if password= is its password
+    private static String authenticate(Map<String, String> params) {
+        String user = require(params, "user");
+        String password = require(params, "password");
+        if (!DatabaseConnection.checkLogin(user, password)) throw new Unauthorized();
+        return user;
+    }
+
+    // Query string plus, for form posts, the urlencoded body
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseInto(params, exchange.getRequestURI().getRawQuery());
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parseInto(params, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void parseInto(Map<String, String> params, String encoded) {
+        if (encoded == null || encoded.isEmpty()) return;
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body().toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
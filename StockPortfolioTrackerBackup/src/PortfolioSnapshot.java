@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable view of everything the Stock frame shows, loaded off the EDT in one go.
+ * Holdings come from the position cache; for a logged-in {@link UserSession} the
+ * balance is cached too, so only the market rows hit SQL.
+ */
+public record PortfolioSnapshot(List<StockRow> market, List<HoldingRow> owned, double balance) {
+
+    public PortfolioSnapshot {
+        market = List.copyOf(market);
+        owned = List.copyOf(owned);
+    }
+
+    private static final OperationMetrics.Operation LOAD = OperationMetrics.operation("PortfolioSnapshot.load");
+
+    // One Stock frame refresh; balance and holdings come from the session
+    public static PortfolioSnapshot load(UserSession session) {
+        if (session == null) return load((String) null);
+        long start = System.nanoTime();
+        try {
+            List<StockRow> market = liveMarket();
+            return new PortfolioSnapshot(market, session.holdings(market), session.balance());
+        } finally {
+            LOAD.record(start);
+        }
+    }
+
+    // Same without a session; the queries it runs are recorded under their own names
+    public static PortfolioSnapshot load(String username) {
+        long start = System.nanoTime();
+        try {
+            double balance = username == null ? 0.0 : DatabaseConnection.getUserBalance(username);
+            List<StockRow> market = liveMarket();
+            return new PortfolioSnapshot(market, DatabaseConnection.holdings(username, market), balance);
+        } finally {
+            LOAD.record(start);
+        }
+    }
+
+    // Market rows with the price engine's latest prices
+    public static List<StockRow> liveMarket() {
+        return withLivePrices(DatabaseConnection.fetchStocks());
+    }
+
+    // One market row at the engine's latest price, or null for a symbol the engine doesn't quote.
+    // Symbols match case-insensitively; only that row is read
+    public static StockRow liveStock(String symbol) {
+        PriceEngine engine = PriceEngine.shared();
+        int id = engine.idOf(symbol);
+        if (id < 0) id = engine.idOf(symbol.toUpperCase(Locale.ROOT));
+        if (id < 0) return null;
+        StockRow row = DatabaseConnection.fetchStock(engine.symbol(id));
+        return row == null ? null : new StockRow(row.company(), row.industry(), row.symbol(),
+                engine.price(id), row.dayChange(), row.gainLoss());
+    }
+
+    // The stocks table is only written every persist interval; show the engine's latest prices
+    private static List<StockRow> withLivePrices(List<StockRow> rows) {
+        PriceEngine engine = PriceEngine.shared();
+        List<StockRow> live = new ArrayList<>(rows.size());
+        for (StockRow row : rows) {
+            double price = engine.price(row.symbol());
+            live.add(Double.isNaN(price) ? row : new StockRow(row.company(), row.industry(), row.symbol(),
+                    price, row.dayChange(), row.gainLoss()));
+        }
+        return live;
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * One user's holding in one symbol. Cost basis is the total paid for the shares still held.
+ */
+public record Position(String symbol, long quantity, double costBasis) {
+
+    public double averageCost() {
+        return quantity == 0 ? 0.0 : costBasis / quantity;
+    }
+}
@@ -0,0 +1,108 @@
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-through cache of every logged-in user's positions.
+ *
+ * A user's positions are read from the positions table once, on first access; after
+ * that trades update the cache right after their transaction commits, so refreshing
+ * the holdings table never goes back to SQL. Readers get an immutable map, replaced
+ * (not mutated) on every write.
+ *
+ * Commit-plus-update runs under a per-user lock, so two trades for the same user land
+ * in commit order. Loads run outside it: a trade holds a pooled connection while it
+ * waits for the lock, so a load borrowing one under the lock could starve the pool.
+ * Every write-through bumps the user's version instead, and a load is only published
+ * if no trade committed while it ran; otherwise it loads again. A failed load throws
+ * and caches nothing.
+ */
+public final class PositionCache {
+
+    private static final PositionCache SHARED = new PositionCache();
+
+    private final Map<String, Map<String, Position>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, UserLock> locks = new ConcurrentHashMap<>();
+
+    private static final class UserLock {
+        long version; // guarded by this; bumped by every write-through and invalidate
+    }
+
+    private PositionCache() {
+    }
+
+    public static PositionCache shared() {
+        return SHARED;
+    }
+
+    public Object lockFor(String username) {
+        return lock(username);
+    }
+
+    private UserLock lock(String username) {
+        return locks.computeIfAbsent(username, k -> new UserLock());
+    }
+
+    // Symbol -> position, in the order the user first bought them.
+    // Must not be called with lockFor(username) held when the user may not be loaded yet
+    public Map<String, Position> positions(String username) {
+        Map<String, Position> cached = byUser.get(username);
+        if (cached != null) return cached;
+
+        UserLock lock = lock(username);
+        while (true) {
+            long version;
+            synchronized (lock) {
+                cached = byUser.get(username);
+                if (cached != null) return cached;
+                version = lock.version;
+            }
+            Map<String, Position> loaded;
+            try {
+                loaded = Collections.unmodifiableMap(DatabaseConnection.fetchPositions(username));
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not load positions for " + username, e);
+            }
+            synchronized (lock) {
+                cached = byUser.get(username);
+                if (cached != null) return cached; // another load got there first
+                if (lock.version == version) {
+                    byUser.put(username, loaded);
+                    return loaded;
+                }
+            }
+            // A trade committed while loading; its row may be missing from what we read
+        }
+    }
+
+    // The loaded positions, or null if not loaded; never reads the table
+    public Map<String, Position> cached(String username) {
+        return byUser.get(username);
+    }
+
+    // Called with lockFor(username) held, after the trade has committed
+    public void writeThrough(String username, Position position) {
+        lock(username).version++;
+        Map<String, Position> current = byUser.get(username);
+        if (current == null) return; // not loaded yet; the first read will see the committed row
+
+        Map<String, Position> next = new LinkedHashMap<>(current);
+        if (position.quantity() > 0) {
+            next.put(position.symbol(), position);
+        } else {
+            next.remove(position.symbol());
+        }
+        byUser.put(username, Collections.unmodifiableMap(next));
+    }
+
+    // Drop a user's entry, e.g. after positions were changed outside the trade path
+    public void invalidate(String username) {
+        UserLock lock = lock(username);
+        synchronized (lock) {
+            lock.version++;
+            byUser.remove(username);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Named sets of SQLite pragmas applied to every new pooled connection.
+ *
+ * Pick one with -Dstocks.db.profile=durable|throughput (durable is the default).
+ */
+public enum PragmaProfile {
+
+    // SQLite defaults: rollback journal, fsync on every commit
+    DURABLE(
+            "PRAGMA journal_mode = DELETE",
+            "PRAGMA synchronous = FULL"),
+
+    // WAL lets readers run while the price update writes; NORMAL only syncs at checkpoints
+    THROUGHPUT(
+            "PRAGMA journal_mode = WAL",
+            "PRAGMA synchronous = NORMAL",
+            "PRAGMA mmap_size = 268435456",
+            "PRAGMA cache_size = -16000",
+            "PRAGMA temp_store = MEMORY");
+
+    private final String[] pragmas;
+
+    PragmaProfile(String... pragmas) {
+        this.pragmas = pragmas;
+    }
+
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : pragmas) {
+                stmt.execute(pragma);
+            }
+        }
+    }
+
+    public static PragmaProfile fromName(String name) {
+        if (name == null || name.isBlank()) return DURABLE;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown pragma profile '" + name + "', using durable");
+            return DURABLE;
+        }
+    }
+}
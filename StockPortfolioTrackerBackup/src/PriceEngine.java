@@ -0,0 +1,231 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory price simulation replacing the per-tick SQL RANDOM() update.
+ *
+ * Each symbol follows geometric Brownian motion, so prices stay positive. State lives
+ * in primitive arrays indexed by symbol id; prices are written back to the stocks
+ * table in batches every persist interval instead of on every tick.
+ *
+ * Simulated time is split into 6.5 hour trading days; the price each symbol had when
+ * the current day started is its open, the reference for day change.
+ *
+ * System properties: stocks.engine.hz (1-1000), stocks.engine.seed,
+ * stocks.engine.persistMillis, stocks.engine.drift, stocks.engine.volatility,
+ * stocks.engine.speed (simulated seconds per real second; default 1, so a trading day
+ * takes 6.5 real hours and day change means what it says; 3600 makes a day 6.5 s).
+ */
+public final class PriceEngine {
+
+    public static final int MIN_HZ = 1;
+    public static final int MAX_HZ = 1000;
+
+    // 252 trading days of 6.5 hours
+    private static final double TRADING_SECONDS_PER_DAY = 6.5 * 3600;
+    private static final double TRADING_SECONDS_PER_YEAR = 252 * TRADING_SECONDS_PER_DAY;
+
+    /** Called on the engine thread after every tick; prices must not be kept or modified. */
+    public interface TickListener {
+        void onTick(long timeMillis, double[] prices);
+    }
+
+    private static PriceEngine shared;
+
+    private final String[] symbols;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final double[] prices;
+    private final double[] open;
+    private final double[] drift;
+    private final double[] volatility;
+    private final Random random;
+    private final double speed;
+    private final long persistMillis;
+    private final List<TickListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> ticking;
+    private int hz;
+    private double dtYears;
+    private long lastPersist;
+    private double daySeconds;   // simulated seconds into the current trading day
+    private int tradingDay;
+
+    public PriceEngine(List<StockRow> stocks, long seed, int hz, double speed, long persistMillis,
+                       double defaultDrift, double defaultVolatility) {
+        int n = stocks.size();
+        this.symbols = new String[n];
+        this.prices = new double[n];
+        this.open = new double[n];
+        this.drift = new double[n];
+        this.volatility = new double[n];
+        for (int i = 0; i < n; i++) {
+            StockRow row = stocks.get(i);
+            symbols[i] = row.symbol();
+            ids.put(row.symbol(), i);
+            prices[i] = row.price() > 0 ? row.price() : 1.0;
+            open[i] = prices[i];
+            drift[i] = defaultDrift;
+            volatility[i] = defaultVolatility;
+        }
+        this.random = new Random(seed);
+        this.speed = speed;
+        this.persistMillis = persistMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "price-engine");
+            t.setDaemon(true);
+            return t;
+        });
+        setTickRate(hz);
+    }
+
+    // Shared engine for the app, seeded from the stocks table on first use
+    public static synchronized PriceEngine shared() {
+        if (shared == null) {
+            shared = new PriceEngine(
+                    DatabaseConnection.fetchStocks(),
+                    Long.getLong("stocks.engine.seed", System.nanoTime()),
+                    Integer.getInteger("stocks.engine.hz", 1),
+                    Double.parseDouble(System.getProperty("stocks.engine.speed", "1")),
+                    Long.getLong("stocks.engine.persistMillis", 5000L),
+                    Double.parseDouble(System.getProperty("stocks.engine.drift", "0.05")),
+                    Double.parseDouble(System.getProperty("stocks.engine.volatility", "0.30")));
+        }
+        return shared;
+    }
+
+    // ------------------------
+    // TICKING
+    // ------------------------
+    public synchronized void setTickRate(int hz) {
+        if (hz < MIN_HZ || hz > MAX_HZ) {
+            throw new IllegalArgumentException("Tick rate must be between " + MIN_HZ + " and " + MAX_HZ + " Hz");
+        }
+        this.hz = hz;
+        this.dtYears = speed / hz / TRADING_SECONDS_PER_YEAR;
+        if (ticking != null) {
+            ticking.cancel(false);
+            schedule();
+        }
+    }
+
+    public synchronized int getTickRate() {
+        return hz;
+    }
+
+    public synchronized void start() {
+        if (ticking != null) return;
+        lastPersist = System.currentTimeMillis();
+        schedule();
+    }
+
+    public synchronized void stop() {
+        if (ticking == null) return;
+        ticking.cancel(false);
+        ticking = null;
+        persist();
+    }
+
+    private void schedule() {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / hz;
+        ticking = scheduler.scheduleAtFixedRate(this::tick, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void tick() {
+        try {
+            step();
+            long now = System.currentTimeMillis();
+            if (now - lastPersist >= persistMillis) {
+                lastPersist = now;
+                double[] copy = copyPrices(null);
+                DataPipeline.shared().submit(() -> DatabaseConnection.updatePrices(symbols, copy));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // keep the schedule alive
+        }
+    }
+
+    // One GBM step for every symbol: S *= exp((mu - sigma^2 / 2) dt + sigma sqrt(dt) Z)
+    public synchronized void step() {
+        double dt = dtYears;
+        daySeconds += dt * TRADING_SECONDS_PER_YEAR;
+        if (daySeconds >= TRADING_SECONDS_PER_DAY) {
+            daySeconds %= TRADING_SECONDS_PER_DAY;
+            tradingDay++;
+            System.arraycopy(prices, 0, open, 0, prices.length); // this tick starts a new day
+        }
+        double sqrtDt = Math.sqrt(dt);
+        for (int i = 0; i < prices.length; i++) {
+            double sigma = volatility[i];
+            double z = random.nextGaussian();
+            prices[i] *= Math.exp((drift[i] - 0.5 * sigma * sigma) * dt + sigma * sqrtDt * z);
+        }
+        long now = System.currentTimeMillis();
+        for (TickListener listener : listeners) {
+            listener.onTick(now, prices);
+        }
+    }
+
+    // Write current prices to the stocks table right away
+    public void persist() {
+        DatabaseConnection.updatePrices(symbols, copyPrices(null));
+    }
+
+    // ------------------------
+    // READS
+    // ------------------------
+    public synchronized double[] copyPrices(double[] dst) {
+        if (dst == null || dst.length != prices.length) dst = new double[prices.length];
+        System.arraycopy(prices, 0, dst, 0, prices.length);
+        return dst;
+    }
+
+    // Prices at the start of the current trading day
+    public synchronized double[] copyOpenPrices(double[] dst) {
+        if (dst == null || dst.length != open.length) dst = new double[open.length];
+        System.arraycopy(open, 0, dst, 0, open.length);
+        return dst;
+    }
+
+    // Counts simulated trading days since the engine was created; open prices change with it
+    public synchronized int tradingDay() {
+        return tradingDay;
+    }
+
+    public synchronized double price(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? Double.NaN : prices[id];
+    }
+
+    public synchronized double price(int id) {
+        return prices[id];
+    }
+
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    public void addListener(TickListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TickListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,485 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes price changes to local subscribers as Server-Sent Events.
+ *
+ *   GET /api/stream                    every symbol
+ *   GET /api/stream?symbols=AAPL,KO    only these
+ *
+ * Every event is {@code event: quotes} with {"time":..,"quotes":[{"symbol","price","time"}]}.
+ * The first event after connecting is a full snapshot; after that only changed symbols
+ * are sent.
+ *
+ * The price engine thread publishes each tick into a {@link QuoteRing} and never waits
+ * on a subscriber. stocks.feed.threads feed loops each read the ring and serve their
+ * share of the subscribers over non-blocking sockets. A subscriber still writing its
+ * last event just has the symbols that changed marked dirty. When its socket drains it
+ * gets one event with the latest price of each dirty symbol, so slow readers skip
+ * intermediate prices instead of queueing them. A loop that falls a whole ring behind
+ * resyncs every subscriber from the engine's current prices.
+ *
+ * Listens on the loopback interface only. Tuning: -Dstocks.feed.port (server mode
+ * default 8081; the GUI starts a feed only when set), -Dstocks.feed.threads,
+ * -Dstocks.feed.ringSize (default 65536 quotes), -Dstocks.feed.sendBufferBytes (default
+ * 16 KB; a small kernel buffer keeps what a slow reader has queued close to current).
+ */
+public final class QuoteFeed implements AutoCloseable {
+
+    // merged: quotes replaced by a newer tick before a loop got to them;
+    // conflated: quotes replaced while a subscriber was still busy with its last event
+    public record Stats(int subscribers, long published, long events, long merged, long conflated, long resyncs) {
+        @Override
+        public String toString() {
+            return String.format("%d subscribers, %d quotes published, %d events sent, %d merged, %d conflated, %d resyncs",
+                    subscribers, published, events, merged, conflated, resyncs);
+        }
+    }
+
+    private static final String PATH = "/api/stream";
+    private static final int MAX_REQUEST_BYTES = 4096;
+    private static final int ACCEPT_BACKLOG = 1024; // the default of 50 drops SYNs when many clients connect at once
+    private static final byte[] HEADERS = ("HTTP/1.1 200 OK\r\n"
+            + "Content-Type: text/event-stream\r\n"
+            + "Cache-Control: no-cache\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Access-Control-Allow-Origin: *\r\n"
+            + "\r\n"
+            + "retry: 1000\n\n").getBytes(StandardCharsets.US_ASCII);
+
+    private static QuoteFeed shared;
+
+    private final PriceEngine engine;
+    private final QuoteRing ring;
+    private final PriceEngine.TickListener publisher;
+    private final ServerSocketChannel server;
+    private final FeedLoop[] loops;
+    private final int sendBufferBytes;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final OperationMetrics.Operation publish = OperationMetrics.operation("quoteFeed.publish");
+    private final OperationMetrics.Operation fanout = OperationMetrics.operation("quoteFeed.fanout");
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public QuoteFeed(PriceEngine engine, int port, int threads, int ringSize, int sendBufferBytes) throws IOException {
+        if (ringSize < 2 * engine.symbolCount()) {
+            throw new IllegalArgumentException("Ring of " + ringSize + " is too small for " + engine.symbolCount() + " symbols");
+        }
+        this.engine = engine;
+        this.ring = new QuoteRing(ringSize);
+        this.sendBufferBytes = sendBufferBytes;
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), ACCEPT_BACKLOG);
+        server.configureBlocking(false);
+
+        loops = new FeedLoop[Math.max(1, threads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new FeedLoop(i);
+        }
+        loops[0].acceptOn(server);
+        for (FeedLoop loop : loops) {
+            loop.thread.start();
+        }
+
+        publisher = publisher();
+        engine.addListener(publisher);
+    }
+
+    // Started once per JVM; later calls return the running feed
+    public static synchronized QuoteFeed startShared(int port) {
+        if (shared == null) {
+            try {
+                shared = new QuoteFeed(PriceEngine.shared(), port,
+                        Integer.getInteger("stocks.feed.threads", Math.min(4, Runtime.getRuntime().availableProcessors())),
+                        Integer.getInteger("stocks.feed.ringSize", 1 << 16),
+                        Integer.getInteger("stocks.feed.sendBufferBytes", 16 * 1024));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start the quote feed on port " + port, e);
+            }
+        }
+        return shared;
+    }
+
+    public static synchronized QuoteFeed shared() {
+        return shared;
+    }
+
+    public int port() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(subscribers.get(), published.sum(), events.sum(), merged.sum(), conflated.sum(), resyncs.sum());
+    }
+
+    @Override
+    public void close() {
+        engine.removeListener(publisher);
+        for (FeedLoop loop : loops) {
+            loop.stop();
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (QuoteFeed.class) {
+            if (shared == this) shared = null;
+        }
+    }
+
+    // ------------------------
+    // PRODUCER
+    // ------------------------
+    // Runs on the engine thread: publish what moved, wake the loops, return
+    private PriceEngine.TickListener publisher() {
+        double[] last = new double[engine.symbolCount()];
+        boolean[] changed = new boolean[last.length];
+        return (timeMillis, prices) -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < prices.length; i++) {
+                changed[i] = prices[i] != last[i];
+                last[i] = prices[i];
+            }
+            int count = ring.publish(timeMillis, prices, changed);
+            if (count > 0) {
+                published.add(count);
+                for (FeedLoop loop : loops) {
+                    loop.wakeup();
+                }
+            }
+            publish.record(start);
+        };
+    }
+
+    // ------------------------
+    // FEED LOOP
+    // ------------------------
+    private final class FeedLoop implements Runnable, QuoteRing.Reader {
+        final Thread thread;
+        private final Selector selector;
+        private final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+        private final List<Subscriber> streaming = new ArrayList<>();
+        private volatile boolean running = true;
+
+        // This loop's view of the market, rebuilt from the ring
+        private final double[] prices = new double[engine.symbolCount()];
+        private final long[] times = new long[prices.length];
+        private final BitSet changed = new BitSet(prices.length);
+        private long cursor;
+
+        // The last encoded event, reused for every subscriber with the same dirty set
+        private final BitSet encodedFor = new BitSet(prices.length);
+        private byte[] encoded;
+
+        FeedLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "quote-feed-" + index);
+            thread.setDaemon(true);
+            cursor = ring.published();
+            resync();
+        }
+
+        void acceptOn(ServerSocketChannel channel) throws IOException {
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+
+        void add(SocketChannel channel) {
+            incoming.add(channel);
+            selector.wakeup();
+        }
+
+        void wakeup() {
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    wakeupPending.set(false);
+                    register();
+                    handleReady();
+                    drainRing();
+                    fanOut();
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Subscriber) ((Subscriber) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void register() throws IOException {
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferBytes);
+                Subscriber s = new Subscriber(channel);
+                s.key = channel.register(selector, SelectionKey.OP_READ, s);
+            }
+        }
+
+        private void handleReady() {
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Subscriber s = (Subscriber) key.attachment();
+                try {
+                    if (key.isReadable()) s.read();
+                    if (key.isValid() && key.isWritable()) s.flush();
+                } catch (IOException e) {
+                    s.close(); // client went away
+                }
+            }
+        }
+
+        private void accept() {
+            try {
+                SocketChannel channel;
+                while ((channel = server.accept()) != null) {
+                    loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].add(channel);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void drainRing() {
+            long next = ring.read(cursor, this);
+            if (next == QuoteRing.LAPPED) {
+                resyncs.increment();
+                cursor = ring.published();
+                resync();
+            } else {
+                cursor = next;
+            }
+        }
+
+        @Override
+        public void onQuote(int symbolId, long timeMillis, double price) {
+            if (changed.get(symbolId)) merged.increment();
+            prices[symbolId] = price;
+            times[symbolId] = timeMillis;
+            changed.set(symbolId);
+        }
+
+        // Whole market from the engine, marked changed for every subscriber
+        private void resync() {
+            engine.copyPrices(prices);
+            long now = System.currentTimeMillis();
+            Arrays.fill(times, now);
+            changed.set(0, prices.length);
+        }
+
+        private void fanOut() {
+            if (changed.isEmpty()) return;
+            long start = System.nanoTime();
+            encoded = null;
+            for (int i = streaming.size() - 1; i >= 0; i--) { // backwards: close() removes
+                Subscriber s = streaming.get(i);
+                s.markDirty(changed);
+                if (!s.writing()) {
+                    try {
+                        s.flush();
+                    } catch (IOException e) {
+                        s.close();
+                    }
+                }
+            }
+            changed.clear();
+            fanout.record(start);
+        }
+
+        private byte[] encode(BitSet dirty) {
+            if (encoded != null && encodedFor.equals(dirty)) return encoded;
+            Json json = new Json().beginObject()
+                    .field("time", System.currentTimeMillis())
+                    .name("quotes").beginArray();
+            for (int id = dirty.nextSetBit(0); id >= 0; id = dirty.nextSetBit(id + 1)) {
+                json.beginObject()
+                        .field("symbol", engine.symbol(id))
+                        .field("price", prices[id])
+                        .field("time", times[id])
+                        .endObject();
+            }
+            json.endArray().endObject();
+            encoded = ("event: quotes\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+            encodedFor.clear();
+            encodedFor.or(dirty);
+            return encoded;
+        }
+
+        // ------------------------
+        // SUBSCRIBER
+        // ------------------------
+        private final class Subscriber {
+            private final SocketChannel channel;
+            private SelectionKey key;
+            private ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+            private BitSet filter;                                  // null = every symbol
+            private final BitSet dirty = new BitSet(prices.length);
+            private ByteBuffer out;                                 // unsent part of the last write
+
+            Subscriber(SocketChannel channel) {
+                this.channel = channel;
+            }
+
+            boolean writing() {
+                return out != null && out.hasRemaining();
+            }
+
+            void markDirty(BitSet changedIds) {
+                for (int id = changedIds.nextSetBit(0); id >= 0; id = changedIds.nextSetBit(id + 1)) {
+                    if (filter != null && !filter.get(id)) continue;
+                    if (dirty.get(id)) {
+                        conflated.increment(); // an older price for this symbol was never sent
+                    } else {
+                        dirty.set(id);
+                    }
+                }
+            }
+
+            void read() throws IOException {
+                if (request == null) {
+                    // Streaming: nothing more is expected from the client except EOF
+                    ByteBuffer discard = ByteBuffer.allocate(256);
+                    if (channel.read(discard) < 0) close();
+                    return;
+                }
+                if (channel.read(request) < 0) {
+                    close();
+                    return;
+                }
+                String text = new String(request.array(), 0, request.position(), StandardCharsets.ISO_8859_1);
+                int end = text.indexOf("\r\n\r\n");
+                if (end < 0) {
+                    if (!request.hasRemaining()) reject("431 Request Header Fields Too Large");
+                    return;
+                }
+                request = null;
+                handshake(text.substring(0, text.indexOf("\r\n")));
+            }
+
+            // Request line, e.g. "GET /api/stream?symbols=AAPL,KO HTTP/1.1"
+            private void handshake(String line) throws IOException {
+                String[] parts = line.split(" ");
+                if (parts.length != 3 || !parts[0].equals("GET")) {
+                    reject("405 Method Not Allowed");
+                    return;
+                }
+                String target = parts[1];
+                int q = target.indexOf('?');
+                if (!(q < 0 ? target : target.substring(0, q)).equals(PATH)) {
+                    reject("404 Not Found");
+                    return;
+                }
+                if (q >= 0) {
+                    for (String pair : target.substring(q + 1).split("&")) {
+                        if (!pair.startsWith("symbols=")) continue;
+                        filter = new BitSet(prices.length);
+                        for (String symbol : URLDecoder.decode(pair.substring(8), StandardCharsets.UTF_8).split(",")) {
+                            int id = engine.idOf(symbol.trim().toUpperCase());
+                            if (id >= 0) filter.set(id);
+                        }
+                    }
+                }
+
+                streaming.add(this);
+                subscribers.incrementAndGet();
+                dirty.set(0, prices.length);
+                if (filter != null) dirty.and(filter);
+                out = ByteBuffer.wrap(HEADERS);
+                flush();
+            }
+
+            private void reject(String status) throws IOException {
+                request = null;
+                byte[] body = ("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII);
+                channel.write(ByteBuffer.wrap(body));
+                close();
+            }
+
+            // Finish the pending write, then send one event with whatever is dirty
+            void flush() throws IOException {
+                while (true) {
+                    if (writing()) {
+                        channel.write(out);
+                        if (out.hasRemaining()) {
+                            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                            return;
+                        }
+                    }
+                    if (dirty.isEmpty()) break;
+                    out = ByteBuffer.wrap(encode(dirty));
+                    dirty.clear();
+                    events.increment();
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            }
+
+            void close() {
+                if (streaming.remove(this)) subscribers.decrementAndGet();
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size broadcast ring of price updates: one producer, any number of readers.
+ *
+ * The producer (the price engine thread) writes a batch of entries and then publishes
+ * the batch with a single volatile store. It never waits for readers: each reader keeps
+ * its own cursor, and a reader that falls more than a ring's worth behind is told it
+ * was lapped and has to resync from a full snapshot instead.
+ */
+public final class QuoteRing {
+
+    /** Receives the entries a reader has not seen yet, oldest first. */
+    public interface Reader {
+        void onQuote(int symbolId, long timeMillis, double price);
+    }
+
+    public static final long LAPPED = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final int mask;
+    private final int[] symbolIds;
+    private final long[] times;
+    private final double[] prices;
+
+    private volatile long claimed = -1;    // highest sequence the producer may be writing
+    private volatile long published = -1;  // highest sequence readers may read
+
+    public QuoteRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.symbolIds = new int[capacity];
+        this.times = new long[capacity];
+        this.prices = new double[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long published() {
+        return published;
+    }
+
+    // ------------------------
+    // PRODUCER (single thread)
+    // ------------------------
+    // Publishes prices[i] for every i with changed[i] set; returns how many entries were written
+    public int publish(long timeMillis, double[] prices, boolean[] changed) {
+        int count = 0;
+        for (boolean c : changed) {
+            if (c) count++;
+        }
+        if (count == 0) return 0;
+        if (count > capacity) {
+            throw new IllegalStateException("Tick of " + count + " quotes does not fit a ring of " + capacity);
+        }
+
+        long seq = published;
+        claimed = seq + count; // readers treat anything this could overwrite as lost
+        VarHandle.storeStoreFence();
+        for (int i = 0; i < changed.length; i++) {
+            if (!changed[i]) continue;
+            int slot = (int) (++seq & mask);
+            symbolIds[slot] = i;
+            times[slot] = timeMillis;
+            this.prices[slot] = prices[i];
+        }
+        published = seq;
+        return count;
+    }
+
+    // ------------------------
+    // READERS
+    // ------------------------
+    // Hands every entry after cursor to reader; returns the new cursor or LAPPED
+    public long read(long cursor, Reader reader) {
+        long end = published;
+        if (end - cursor > capacity) return LAPPED;
+        for (long seq = cursor + 1; seq <= end; seq++) {
+            int slot = (int) (seq & mask);
+            int id = symbolIds[slot];
+            long time = times[slot];
+            double price = prices[slot];
+            // The producer may have wrapped around onto this slot while we copied it
+            VarHandle.loadLoadFence();
+            if (claimed - seq >= capacity) return LAPPED;
+            reader.onQuote(id, time, price);
+        }
+        return end;
+    }
+}
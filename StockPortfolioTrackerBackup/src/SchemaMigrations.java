@@ -0,0 +1,260 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned schema changes for stocks.db.
+ *
+ * The applied version is kept in SQLite's PRAGMA user_version. Each step runs in its
+ * own transaction together with the version bump, so it is applied exactly once.
+ * New steps go at the end of {@link #STEPS} with the next version number.
+ */
+public final class SchemaMigrations {
+
+    private record Step(int version, String description, String... statements) {
+    }
+
+    private static final List<Step> STEPS = List.of(
+            new Step(1, "base schema and sample data",
+                    """
+                    CREATE TABLE IF NOT EXISTS users (
+                        username TEXT PRIMARY KEY,
+                        password TEXT
+                    )
+                    """,
+                    """
+                    INSERT INTO users (username, password)
+                    SELECT 'admin', 'admin123'
+                    WHERE NOT EXISTS (SELECT 1 FROM users WHERE username = 'admin')
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS balance (
+                        username TEXT PRIMARY KEY,
+                        amount REAL
+                    )
+                    """,
+                    """
+                    INSERT INTO balance (username, amount)
+                    SELECT 'admin', 100000.0
+                    WHERE NOT EXISTS (SELECT 1 FROM balance WHERE username = 'admin')
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS stocks (
+                        company TEXT,
+                        industry TEXT,
+                        symbol TEXT PRIMARY KEY,
+                        price REAL,
+                        day_change TEXT,
+                        gain_loss TEXT
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS owned_stocks (
+                        company TEXT,
+                        industry TEXT,
+                        symbol TEXT PRIMARY KEY,
+                        price REAL,
+                        day_change TEXT,
+                        gain_loss TEXT
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS history (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        company TEXT,
+                        industry TEXT,
+                        symbol TEXT,
+                        price REAL,
+                        day_change TEXT,
+                        gain_loss TEXT,
+                        action TEXT,
+                        date TEXT DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """,
+                    """
+                    INSERT OR IGNORE INTO stocks (company, industry, symbol, price, day_change, gain_loss) VALUES
+                    ('Apple Inc.', 'Technology', 'AAPL', 178.23, '+1.45%', '+$230'),
+                    ('Microsoft Corp.', 'Technology', 'MSFT', 319.60, '-0.22%', '-$45'),
+                    ('Tesla Inc.', 'Automotive', 'TSLA', 251.12, '+2.10%', '+$520'),
+                    ('Coca-Cola Co.', 'Beverage', 'KO', 58.43, '+0.12%', '+$15'),
+                    ('JPMorgan Chase', 'Finance', 'JPM', 144.56, '-0.35%', '-$90'),
+                    ('Amazon.com Inc.', 'E-commerce', 'AMZN', 132.87, '+0.89%', '+$340')
+                    """),
+
+            // Balance and login lookups already use the username primary keys
+            new Step(2, "indexes for history access paths",
+                    "CREATE INDEX IF NOT EXISTS idx_history_symbol_date ON history (symbol, date)",
+                    "CREATE INDEX IF NOT EXISTS idx_history_action_id ON history (action, id)"),
+
+            // owned_stocks was keyed by symbol alone, so every user shared one holding per
+            // symbol; the old rows predate per-user ownership and are given to admin
+            new Step(3, "per-user positions",
+                    """
+                    CREATE TABLE IF NOT EXISTS positions (
+                        username TEXT NOT NULL,
+                        symbol TEXT NOT NULL,
+                        quantity INTEGER NOT NULL,
+                        cost_basis REAL NOT NULL,
+                        PRIMARY KEY (username, symbol)
+                    )
+                    """,
+                    """
+                    INSERT OR IGNORE INTO positions (username, symbol, quantity, cost_basis)
+                    SELECT 'admin', symbol, 1, price FROM owned_stocks
+                    """),
+
+            // SQLite can't change column types in place: every table is rebuilt as STRICT,
+            // the small keyed ones WITHOUT ROWID, and the old rows converted on the way.
+            // Money becomes whole centavos, '+1.45%' becomes 1.45, '-$45' becomes -4500
+            // and history dates become epoch millis. History no longer copies company
+            // and industry; they are joined from stocks.
+            new Step(4, "typed STRICT tables with fixed-point money",
+                    """
+                    CREATE TABLE users_v4 (
+                        username TEXT PRIMARY KEY,
+                        password TEXT NOT NULL
+                    ) STRICT, WITHOUT ROWID
+                    """,
+                    "INSERT INTO users_v4 SELECT username, COALESCE(password, '') FROM users WHERE username IS NOT NULL",
+                    "DROP TABLE users",
+                    "ALTER TABLE users_v4 RENAME TO users",
+
+                    """
+                    CREATE TABLE balance_v4 (
+                        username TEXT PRIMARY KEY,
+                        amount INTEGER NOT NULL
+                    ) STRICT, WITHOUT ROWID
+                    """,
+                    "INSERT INTO balance_v4 SELECT username, " + minorUnits("amount") + " FROM balance WHERE username IS NOT NULL",
+                    "DROP TABLE balance",
+                    "ALTER TABLE balance_v4 RENAME TO balance",
+
+                    quoteTable("stocks_v4"),
+                    "INSERT INTO stocks_v4 " + selectQuotes("stocks"),
+                    "DROP TABLE stocks",
+                    "ALTER TABLE stocks_v4 RENAME TO stocks",
+
+                    quoteTable("owned_stocks_v4"),
+                    "INSERT INTO owned_stocks_v4 " + selectQuotes("owned_stocks"),
+                    "DROP TABLE owned_stocks",
+                    "ALTER TABLE owned_stocks_v4 RENAME TO owned_stocks",
+
+                    // opened orders a user's positions; the old rowid keeps the existing order
+                    """
+                    CREATE TABLE positions_v4 (
+                        username TEXT NOT NULL,
+                        symbol TEXT NOT NULL,
+                        quantity INTEGER NOT NULL,
+                        cost_basis INTEGER NOT NULL,
+                        opened INTEGER NOT NULL,
+                        PRIMARY KEY (username, symbol)
+                    ) STRICT, WITHOUT ROWID
+                    """,
+                    "INSERT INTO positions_v4 SELECT username, symbol, quantity, " + minorUnits("cost_basis") + ", rowid FROM positions",
+                    "DROP TABLE positions",
+                    "ALTER TABLE positions_v4 RENAME TO positions",
+
+                    // Keeps its rowid: history is paged by id
+                    """
+                    CREATE TABLE history_v4 (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        symbol TEXT NOT NULL,
+                        price INTEGER NOT NULL,
+                        day_change REAL NOT NULL,
+                        gain_loss INTEGER NOT NULL,
+                        action TEXT NOT NULL,
+                        time INTEGER NOT NULL
+                    ) STRICT
+                    """,
+                    "INSERT INTO history_v4 SELECT id, COALESCE(symbol, ''), " + minorUnits("price") + ", "
+                            + percent("day_change") + ", " + signedMinorUnits("gain_loss") + ", COALESCE(action, ''), "
+                            + "COALESCE(CAST(ROUND((julianday(date) - 2440587.5) * 86400000) AS INTEGER), 0) FROM history",
+                    "DROP TABLE history",
+                    "ALTER TABLE history_v4 RENAME TO history",
+                    "CREATE INDEX idx_history_symbol_time ON history (symbol, time)",
+                    "CREATE INDEX idx_history_action_id ON history (action, id)",
+                    "CREATE INDEX idx_history_time ON history (time)")
+    );
+
+    // ------------------------
+    // v4 CONVERSIONS (SQL expressions)
+    // ------------------------
+    // 178.23 -> 17823
+    private static String minorUnits(String column) {
+        return "CAST(ROUND(COALESCE(" + column + ", 0) * 100) AS INTEGER)";
+    }
+
+    // '+1.45%' -> 1.45
+    private static String percent(String column) {
+        return "COALESCE(CAST(REPLACE(REPLACE(" + column + ", '%', ''), '+', '') AS REAL), 0.0)";
+    }
+
+    // '-$1,234.50' -> -123450
+    private static String signedMinorUnits(String column) {
+        return "COALESCE(CAST(ROUND((CASE WHEN TRIM(" + column + ") LIKE '-%' THEN -100 ELSE 100 END) * CAST("
+                + "REPLACE(REPLACE(REPLACE(REPLACE(" + column + ", '+', ''), '-', ''), '$', ''), ',', '') AS REAL)) AS INTEGER), 0)";
+    }
+
+    // stocks and owned_stocks share a shape
+    private static String quoteTable(String name) {
+        return "CREATE TABLE " + name + """
+                 (
+                    symbol TEXT PRIMARY KEY,
+                    company TEXT NOT NULL,
+                    industry TEXT NOT NULL,
+                    price INTEGER NOT NULL,
+                    day_change REAL NOT NULL,
+                    gain_loss INTEGER NOT NULL
+                ) STRICT, WITHOUT ROWID
+                """;
+    }
+
+    private static String selectQuotes(String table) {
+        return "SELECT symbol, COALESCE(company, ''), COALESCE(industry, ''), " + minorUnits("price") + ", "
+                + percent("day_change") + ", " + signedMinorUnits("gain_loss") + " FROM " + table + " WHERE symbol IS NOT NULL";
+    }
+
+    private SchemaMigrations() {
+    }
+
+    public static int latestVersion() {
+        return STEPS.get(STEPS.size() - 1).version();
+    }
+
+    // Applies every step newer than the database's user_version; returns the number applied
+    public static int migrate(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        int applied = 0;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (Step step : STEPS) {
+                if (step.version() <= current) continue;
+                try {
+                    for (String sql : step.statements()) {
+                        stmt.execute(sql);
+                    }
+                    stmt.execute("PRAGMA user_version = " + step.version());
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Schema migration " + step.version() + " (" + step.description() + ") failed", e);
+                }
+                System.out.println("Applied schema migration " + step.version() + ": " + step.description());
+                applied++;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return applied;
+    }
+
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
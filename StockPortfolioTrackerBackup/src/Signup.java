@@ -172,7 +172,6 @@ public class Signup extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
-    jButton1.addActionListener(e -> {
     String username = jFormattedTextField1.getText().trim();
     String password = jFormattedTextField2.getText().trim();
 
@@ -186,7 +185,9 @@ public class Signup extends javax.swing.JFrame {
     }
 
     // Attempt to add user to database
-    boolean success = DatabaseConnection.addUser(username, password);
+    jButton1.setEnabled(false);
+    DataPipeline.shared().submit(() -> DatabaseConnection.addUser(username, password), success -> {
+    jButton1.setEnabled(true);
 
     if (success) {
         JOptionPane.showMessageDialog(this, 
@@ -0,0 +1,119 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ *
+ * A pooled connection is only used by one borrower at a time, so the cache is not
+ * synchronized. Closing a statement handed out by the cache only resets its
+ * parameters; the real statement is closed on eviction or when the connection dies.
+ */
+public class StatementCache {
+
+    private final Connection connection;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder busy;
+    private final Map<String, PreparedStatement> statements;
+
+    public StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses, LongAdder busy) {
+        this.connection = connection;
+        this.hits = hits;
+        this.misses = misses;
+        this.busy = busy;
+        this.statements = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        return reusable(stmt);
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public void closeAll() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+    }
+
+    private PreparedStatement reusable(PreparedStatement stmt) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new ReusableHandle(stmt, busy));
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static final class ReusableHandle implements InvocationHandler {
+        private final PreparedStatement stmt;
+        private final LongAdder busy;
+        private boolean released;
+
+        ReusableHandle(PreparedStatement stmt, LongAdder busy) {
+            this.stmt = stmt;
+            this.busy = busy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        // Leave the statement clean for the next caller
+                        stmt.clearParameters();
+                        stmt.clearBatch();
+                    }
+                    return null;
+                case "isClosed":
+                    return released || stmt.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + stmt;
+                default:
+                    if (released) throw new SQLException("Statement has already been closed");
+                    try {
+                        return method.invoke(stmt, args);
+                    } catch (InvocationTargetException e) {
+                        if (ConnectionPool.isBusy(e.getCause())) busy.increment();
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
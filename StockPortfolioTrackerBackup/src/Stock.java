@@ -1,18 +1,48 @@
+import java.util.BitSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 
 public class Stock extends JFrame {
-    private Timer autoRefreshTimer; // single timer only
-    private String loggedInUsername;
+    private final DataPipeline pipeline = DataPipeline.shared();
+    private final StockTableModel marketModel = new StockTableModel();
+    private final IndexedRowSorter marketSorter = new IndexedRowSorter(marketModel);
+    private final HoldingsTableModel ownedModel = new HoldingsTableModel();
+    private ScheduledFuture<?> autoRefresh; // single refresh task only
+    private volatile UserSession session;
+    private volatile String loggedInUsername;
+
+    // Live prices, totals and balance reach the UI only through the coalescer's frames
+    private final JLabel totalsLabel = new JLabel();
+    private volatile ValuationEngine valuation;
+    private final StringBuilder labelText = new StringBuilder(64); // EDT only, reused for every label update
+    private volatile TickCoalescer ticks; // once storage is up
+    private String marketIndustry; // EDT only, the industry filter shown as selected
+    private final Consumer<ValuationEngine.Totals> totalsListener = totals -> {
+        TickCoalescer coalescer = ticks;
+        if (coalescer != null) coalescer.requestFlush();
+    };
 
     public Stock() {
         initComponents();
-        DatabaseConnection.Database();
+        jTable1.setModel(marketModel);
+        jTable2.setModel(ownedModel);
+        jTable1.setRowSorter(marketSorter);
+        jTable1.getTableHeader().setComponentPopupMenu(marketFilterMenu());
+        FormattedCellRenderer.price().install(jTable1, StockTableModel.PRICE);
+        FormattedCellRenderer.percent().install(jTable1, StockTableModel.DAY_CHANGE);
+        FormattedCellRenderer.signedMoney().install(jTable1, StockTableModel.GAIN_LOSS);
+        FormattedCellRenderer.price().install(jTable2, HoldingsTableModel.PRICE);
+        FormattedCellRenderer.percent().install(jTable2, HoldingsTableModel.DAY_CHANGE);
+        FormattedCellRenderer.signedMoney().install(jTable2, HoldingsTableModel.GAIN_LOSS);
+        totalsLabel.setFont(jLabel2.getFont());
+        totalsLabel.setForeground(jLabel2.getForeground());
+        jPanel2.add(totalsLabel, new org.netbeans.lib.awtextra.AbsoluteConstraints(130, 70, 410, -1), 0); // above the background image
+        AppBootstrap.start(); // storage is initialized once per JVM, not per frame
 
         // Load initial table data
-        loadStocks();
-        loadOwnedStocks();
-        updateBalanceLabel();
+        refreshAllTables();
         setResizable(false);
         setLocationRelativeTo(null);
         setVisible(true);
@@ -26,54 +56,216 @@ public class Stock extends JFrame {
         });
 
         startAutoRefresh();
+        startTicks();
+
+        // Ctrl+Shift+D opens the diagnostics window (operation timings, pool, journal)
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke("ctrl shift D"), "diagnostics");
+        getRootPane().getActionMap().put("diagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                DiagnosticsFrame.open(Stock.this);
+            }
+        });
     }
+    // ------------------------
+    // Refresh both tables
+    // ------------------------
     private void refreshAllTables() {
-    loadStocks();       // Load all available stocks
-    loadOwnedStocks();  // Load only owned stocks for logged-in user
-    updateBalanceLabel();
+        UserSession current = session;
+        pipeline.submit(() -> PortfolioSnapshot.load(current), this::showSnapshot);
     }
 
-    private void loadStocks() {
-        DefaultTableModel model = (DefaultTableModel) jTable1.getModel();
-        DatabaseConnection.loadDataToTable(model);
+    // Runs on the EDT with data that was loaded in the background
+    private void showSnapshot(PortfolioSnapshot snapshot) {
+        marketModel.apply(snapshot.market());
+        ownedModel.apply(snapshot.owned());
+        updateBalanceLabel(snapshot.balance());
     }
 
     // ------------------------
-    // Load owned stocks
+    // Auto refresh every 5 sec
     // ------------------------
-    private void loadOwnedStocks() {
-        DefaultTableModel model = (DefaultTableModel) jTable2.getModel();
-        DatabaseConnection.loadOwnedStocksToTable(model);
+    private void startAutoRefresh() {
+        // Prices move on their own in PriceEngine; this only pulls the latest state into the UI
+        autoRefresh = pipeline.scheduleWithFixedDelay(() -> {
+            PortfolioSnapshot snapshot = PortfolioSnapshot.load(session);
+            SwingUtilities.invokeLater(() -> showSnapshot(snapshot));
+        }, 5, 5, TimeUnit.SECONDS);
     }
 
-    // ------------------------
-    // Refresh both tables
-    // ------------------------
+    private record TradeOutcome(TradeResult result, PortfolioSnapshot snapshot) {
+    }
+
+    // Run one atomic trade in the background, then show the result and the fresh portfolio
+    private void trade(java.util.function.Supplier<TradeResult> order) {
+        UserSession current = session;
+        pipeline.submit(() -> new TradeOutcome(order.get(), PortfolioSnapshot.load(current)), outcome -> {
+            showSnapshot(outcome.snapshot());
+            switch (outcome.result()) {
+                case INSUFFICIENT_FUNDS: JOptionPane.showMessageDialog(this, "Not enough balance!"); break;
+                case NOT_OWNED: JOptionPane.showMessageDialog(this, "You no longer own this stock!"); break;
+                case FAILED: JOptionPane.showMessageDialog(this, "Trade failed, please try again."); break;
+                default: break;
+            }
+        });
+    }
+
+    // The engine is built from the stocks table, so not on the EDT
+    private void startTicks() {
+        pipeline.submit(() -> {
+            AppBootstrap.start().awaitStorage();
+            return PriceEngine.shared();
+        }, engine -> {
+            if (!isDisplayable()) return; // disposed meanwhile
+            ticks = new TickCoalescer(engine, this, this::showTicks);
+            ticks.start();
+        });
+    }
+
+    // One coalesced frame: the symbols that moved since the last one, at their latest prices
+    private void showTicks(BitSet changed, double[] prices) {
+        PriceEngine engine = PriceEngine.shared();
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            String symbol = engine.symbol(id);
+            int row = marketModel.indexOf(symbol);
+            if (row >= 0) {
+                StockRow r = marketModel.getRow(row);
+                marketModel.update(new StockRow(r.company(), r.industry(), symbol, prices[id], r.dayChange(), r.gainLoss()));
+            }
+            row = ownedModel.indexOf(symbol);
+            if (row >= 0) {
+                HoldingRow h = ownedModel.getRow(row);
+                ownedModel.update(new HoldingRow(h.company(), h.industry(), symbol, h.quantity(), prices[id], h.costBasis(), h.dayChange()));
+            }
+        }
+        marketSorter.flush(); // moved rows take their new place in this frame
+        UserSession current = session;
+        if (current != null) updateBalanceLabel(current.cachedBalance()); // reloaded by the 5 s refresh if missing
+        showTotals();
+    }
 
     // ------------------------
-    // Auto refresh every 5 sec
+    // MARKET FILTERS (right-click the table header)
     // ------------------------
-    private void startAutoRefresh() {
-        autoRefreshTimer = new Timer(5000, e -> {
-            DatabaseConnection.updateStockPrices(); // update database first
-            refreshAllTables();                      // then refresh UI
+    private JPopupMenu marketFilterMenu() {
+        JPopupMenu menu = new JPopupMenu();
+        menu.addPopupMenuListener(new javax.swing.event.PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(javax.swing.event.PopupMenuEvent e) {
+                fillMarketFilterMenu(menu); // industries come and go with the data
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(javax.swing.event.PopupMenuEvent e) {
+            }
+
+            @Override
+            public void popupMenuCanceled(javax.swing.event.PopupMenuEvent e) {
+            }
         });
+        return menu;
+    }
+
+    private void fillMarketFilterMenu(JPopupMenu menu) {
+        menu.removeAll();
+        JMenu industries = new JMenu("Industry");
+        ButtonGroup group = new ButtonGroup();
+        JRadioButtonMenuItem all = new JRadioButtonMenuItem("All", marketIndustry == null);
+        all.addActionListener(e -> filterIndustry(null));
+        group.add(all);
+        industries.add(all);
+        for (String industry : marketSorter.categories(StockTableModel.INDUSTRY)) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(industry, industry.equalsIgnoreCase(marketIndustry));
+            item.addActionListener(e -> filterIndustry(industry));
+            group.add(item);
+            industries.add(item);
+        }
+        menu.add(industries);
+
+        JMenuItem range = new JMenuItem("Price range...");
+        range.addActionListener(e -> askPriceRange());
+        menu.add(range);
 
-        autoRefreshTimer.start();
+        JMenuItem clear = new JMenuItem("Clear filters");
+        clear.addActionListener(e -> {
+            marketIndustry = null;
+            marketSorter.clearFilters();
+        });
+        menu.add(clear);
     }
-private void updateBalanceLabel() {
-    if (loggedInUsername != null) {
-        double balance = DatabaseConnection.getUserBalance(loggedInUsername);
-        jLabel2.setText("₱ " + String.format("%.2f", balance));
-    } else {
-        jLabel2.setText("₱ 0.00");
+
+    private void filterIndustry(String industry) {
+        marketIndustry = industry;
+        marketSorter.setCategoryFilter(StockTableModel.INDUSTRY, industry);
     }
+
+    // "min-max", "min-" or "-max"
+    private void askPriceRange() {
+        String input = JOptionPane.showInputDialog(this, "Price range (min-max, either side may be empty):");
+        if (input == null) return;
+        String[] parts = input.trim().split("-", -1);
+        try {
+            if (parts.length == 1 && parts[0].isEmpty()) {
+                marketSorter.setRangeFilter(-1, 0, 0);
+                return;
+            }
+            if (parts.length != 2) throw new NumberFormatException(input);
+            double min = parts[0].isBlank() ? Double.NEGATIVE_INFINITY : Double.parseDouble(parts[0].trim());
+            double max = parts[1].isBlank() ? Double.POSITIVE_INFINITY : Double.parseDouble(parts[1].trim());
+            marketSorter.setRangeFilter(StockTableModel.PRICE, min, max);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid price range: " + input);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (ticks != null) {
+            ticks.stop();
+        }
+        if (autoRefresh != null) {
+            autoRefresh.cancel(false);
+        }
+        if (valuation != null) {
+            valuation.removeListener(totalsListener);
+        }
+        super.dispose();
+    }
+
+private void updateBalanceLabel(double balance) {
+    labelText.setLength(0);
+    NumberText.appendFixed(labelText.append("₱ "), loggedInUsername != null ? balance : 0.0, 2, false);
+    setIfChanged(jLabel2, labelText);
+}
+
+// Only builds a String when the text actually changed
+private static void setIfChanged(JLabel label, StringBuilder text) {
+    if (!label.getText().contentEquals(text)) label.setText(text.toString());
 }
 
-public void setLoggedInUser(String username) {
-    this.loggedInUsername = username;                 // store username
-    jLabel4.setText("Logged in as: " + username);    // update username label
-    updateBalanceLabel();                             // update balance label for this user
+public void setSession(UserSession session) {
+    this.session = session;                           // balance and holdings cached since login
+    this.loggedInUsername = session.username();       // store username
+    jLabel4.setText("Logged in as: " + loggedInUsername);    // update username label
+    refreshAllTables();                               // update tables and balance for this user
+    this.valuation = session.valuation();             // built at login
+    valuation.addListener(totalsListener);            // live totals on every tick
+    showTotals();
+}
+
+// Reads the latest totals when a frame runs, however many ticks came in between
+private void showTotals() {
+    ValuationEngine.Totals totals = valuation == null ? null : valuation.totals();
+    if (totals == null) {
+        totalsLabel.setText("");
+        return;
+    }
+    labelText.setLength(0);
+    NumberText.appendFixed(labelText.append("Value ₱ "), totals.marketValue(), 2, true);
+    NumberText.appendSigned(labelText.append("   P&L "), totals.unrealized(), "₱", 2, true);
+    NumberText.appendSigned(labelText.append("   Day "), totals.dayChange(), "₱", 2, true);
+    setIfChanged(totalsLabel, labelText);
 }
 
     @SuppressWarnings("unchecked")
@@ -280,58 +472,29 @@ public void setLoggedInUser(String username) {
     }// </editor-fold>//GEN-END:initComponents
 
     private void jButton4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton4ActionPerformed
-        Transaction transactionFrame = new Transaction();  //create object of Transaction JFrame
+        Transaction transactionFrame = new Transaction(session);  //create object of Transaction JFrame
         transactionFrame.setVisible(true);                 //show the Transaction window
         this.dispose();       
     }//GEN-LAST:event_jButton4ActionPerformed
 
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
-        jButton2.addActionListener(e -> {
         int row = jTable2.getSelectedRow();
         if (row == -1) { JOptionPane.showMessageDialog(this, "Select a stock to sell!"); return; }
 
-        String company = jTable2.getValueAt(row, 0).toString();
-        String industry = jTable2.getValueAt(row, 1).toString();
-        String symbol = jTable2.getValueAt(row, 2).toString();
-        double price = Double.parseDouble(jTable2.getValueAt(row, 3).toString());
-        String dayChange = jTable2.getValueAt(row, 4).toString();
-        String gainLoss = jTable2.getValueAt(row, 5).toString();
-
-        double balance = DatabaseConnection.getUserBalance(loggedInUsername);
-        DatabaseConnection.updateUserBalance(loggedInUsername, balance + price);
-
-        DatabaseConnection.removeOwnedStock(company, industry, symbol, price, dayChange, gainLoss);
-
-        loadOwnedStocks();
-        updateBalanceLabel();
-    });
+        StockRow stock = ownedModel.getRow(jTable2.convertRowIndexToModel(row)).toStockRow();
+        String username = loggedInUsername;
 
+        trade(() -> DatabaseConnection.executeSell(username, stock));
     }//GEN-LAST:event_jButton2ActionPerformed
 
     private void jButton3ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton3ActionPerformed
-    jButton3.addActionListener(e -> {
         int row = jTable1.getSelectedRow();
         if (row == -1) { JOptionPane.showMessageDialog(this, "Select a stock to buy!"); return; }
 
-        String company = jTable1.getValueAt(row, 0).toString();
-        String industry = jTable1.getValueAt(row, 1).toString();
-        String symbol = jTable1.getValueAt(row, 2).toString();
-        double price = Double.parseDouble(jTable1.getValueAt(row, 3).toString());
-        String dayChange = jTable1.getValueAt(row, 4).toString();
-        String gainLoss = jTable1.getValueAt(row, 5).toString();
-
-        double balance = DatabaseConnection.getUserBalance(loggedInUsername);
-        if (balance < price) { JOptionPane.showMessageDialog(this, "Not enough balance!"); return; }
-
-        DatabaseConnection.updateUserBalance(loggedInUsername, balance - price);
-        DatabaseConnection.buyStock(company, industry, symbol, price, dayChange, gainLoss);
-
-        loadStocks();
-        loadOwnedStocks();
-        updateBalanceLabel();
-    });
-
+        StockRow stock = marketModel.getRow(jTable1.convertRowIndexToModel(row));
+        String username = loggedInUsername;
 
+        trade(() -> DatabaseConnection.executeBuy(username, stock));
     }//GEN-LAST:event_jButton3ActionPerformed
 
     private void jButton5ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton5ActionPerformed
@@ -340,6 +503,7 @@ public void setLoggedInUser(String username) {
 
     // Show thank-you message
     JOptionPane.showMessageDialog(this, "Thank you for using Stoxly, " + username + "!");
+    if (session != null) session.close();    // next login reads the account again
 
     // Open login frame
     Login loginFrame = new Login();
@@ -0,0 +1,7 @@
+/**
+ * One row of the stocks / owned_stocks tables, as read from the database.
+ * dayChange is in percent (1.45 for +1.45%), gainLoss in currency.
+ */
+public record StockRow(String company, String industry, String symbol, double price,
+                       double dayChange, double gainLoss) {
+}
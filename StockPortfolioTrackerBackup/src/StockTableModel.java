@@ -0,0 +1,44 @@
+/**
+ * Market table model, keyed by symbol.
+ */
+public class StockTableModel extends KeyedTableModel<StockRow> {
+
+    public static final int COMPANY = 0;
+    public static final int INDUSTRY = 1;
+    public static final int SYMBOL = 2;
+    public static final int PRICE = 3;
+    public static final int DAY_CHANGE = 4;
+    public static final int GAIN_LOSS = 5;
+
+    public StockTableModel() {
+        super("Company", "Industry", "Symbol", "Price", "Day Change", "Gain/Loss");
+    }
+
+    @Override
+    protected String keyOf(StockRow row) {
+        return row.symbol();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case PRICE:
+            case DAY_CHANGE:
+            case GAIN_LOSS: return Double.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    protected Object valueOf(StockRow row, int column) {
+        switch (column) {
+            case COMPANY: return row.company();
+            case INDUSTRY: return row.industry();
+            case SYMBOL: return row.symbol();
+            case PRICE: return row.price();
+            case DAY_CHANGE: return row.dayChange();
+            case GAIN_LOSS: return row.gainLoss();
+            default: throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+}
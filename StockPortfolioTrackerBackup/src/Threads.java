@@ -0,0 +1,43 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread helpers that use virtual threads when the JVM has them.
+ *
+ * The project targets Java 17, where virtual threads don't exist, so they are looked
+ * up reflectively; on 17 the callers get a bounded pool of daemon platform threads.
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // One virtual thread per task on Java 21+, otherwise fallbackThreads platform threads
+    public static ExecutorService newPerTaskExecutor(String name, int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(fallbackThreads, daemonFactory(name));
+        }
+    }
+
+    public static ThreadFactory daemonFactory(String name) {
+        AtomicInteger next = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + next.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,129 @@
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.BitSet;
+import javax.swing.Timer;
+
+/**
+ * Sits between the price engine and one window's Swing models.
+ *
+ * Ticks only overwrite the latest price per symbol and mark it dirty; nothing is
+ * posted to the EDT per tick. A Swing timer then flushes what changed at most
+ * stocks.ui.fps times a second, so the UI does the same work at 10 ticks/sec as at
+ * 1000. While the window is hidden or minimized the flushes are skipped and the
+ * changes keep coalescing until it is shown again.
+ *
+ * Other state that the flush should pick up (totals after a trade, say) can ask for
+ * a frame with {@link #requestFlush()}; it is read when the frame runs, not queued.
+ *
+ * Tuning: -Dstocks.ui.fps (default 30)
+ */
+public final class TickCoalescer implements PriceEngine.TickListener, ActionListener {
+
+    public static final int FPS = Math.max(1, Integer.getInteger("stocks.ui.fps", 30));
+
+    // Called on the EDT with the symbol ids that moved since the last frame and the latest prices by id
+    public interface Flush {
+        void flush(BitSet changed, double[] prices);
+    }
+
+    public record Stats(long ticks, long frames, long skippedHidden, long maxChangedPerFrame) {
+    }
+
+    private static volatile TickCoalescer active; // the most recently started, for diagnostics
+
+    private final PriceEngine engine;
+    private final Frame window;
+    private final Flush target;
+    private final Timer timer;
+
+    // Written by the engine thread, drained by the EDT; guarded by this
+    private final double[] latest;
+    private final BitSet dirty = new BitSet();
+    private long ticks;
+
+    // EDT only
+    private final double[] shown;
+    private final BitSet changed = new BitSet();
+    private volatile boolean flushRequested;
+    private long frames;        // these three are written on the EDT under this
+    private long skippedHidden;
+    private long maxChanged;
+
+    public TickCoalescer(PriceEngine engine, Frame window, Flush target) {
+        this.engine = engine;
+        this.window = window;
+        this.target = target;
+        this.latest = engine.copyPrices(null);
+        this.shown = latest.clone();
+        this.timer = new Timer(1000 / FPS, this);
+        timer.setCoalesce(true);
+    }
+
+    public void start() {
+        engine.addListener(this);
+        timer.start();
+        active = this;
+    }
+
+    public void stop() {
+        timer.stop();
+        engine.removeListener(this);
+        if (active == this) active = null;
+    }
+
+    public static TickCoalescer active() {
+        return active;
+    }
+
+    // Any thread
+    public void requestFlush() {
+        flushRequested = true;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(ticks, frames, skippedHidden, maxChanged);
+    }
+
+    // ------------------------
+    // ENGINE THREAD
+    // ------------------------
+    @Override
+    public void onTick(long timeMillis, double[] prices) {
+        synchronized (this) {
+            for (int id = 0; id < latest.length; id++) {
+                if (prices[id] != latest[id]) {
+                    latest[id] = prices[id];
+                    dirty.set(id);
+                }
+            }
+            ticks++;
+        }
+    }
+
+    // ------------------------
+    // EDT (timer)
+    // ------------------------
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (!window.isShowing() || (window.getExtendedState() & Frame.ICONIFIED) != 0) {
+            synchronized (this) {
+                skippedHidden++;
+            }
+            return;
+        }
+        synchronized (this) {
+            if (dirty.isEmpty() && !flushRequested) return;
+            flushRequested = false; // a request after this point gets the next frame
+            changed.clear();
+            changed.or(dirty);
+            dirty.clear();
+            for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+                shown[id] = latest[id];
+            }
+            maxChanged = Math.max(maxChanged, changed.cardinality());
+            frames++;
+        }
+        target.flush(changed, shown);
+    }
+}
@@ -0,0 +1,146 @@
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+/**
+ * Ends the up/down flash of {@link FormattedCellRenderer} cells.
+ *
+ * A cell update already repaints just that cell. When its flash is over the cell
+ * has to be painted once more without the highlight; this keeps a FIFO of updated
+ * cells (every flash lasts equally long, so they expire in order) and one Swing
+ * timer that repaints each expired cell's rectangle. Cells outside the viewport are
+ * not queued at all: when scrolled in later they paint from the model's move time,
+ * which by then has usually expired. Nothing repaints the whole table.
+ *
+ * Tuning: -Dstocks.ui.flashMillis (default 600)
+ */
+public final class TickFlash implements TableModelListener, ActionListener {
+
+    public static final long FLASH_MILLIS = Long.getLong("stocks.ui.flashMillis", 600);
+
+    private static final String KEY = TickFlash.class.getName();
+
+    private final JTable table;
+    private final Timer timer;
+    private final Rectangle visible = new Rectangle();
+
+    // Ring of pending expiries, in model coordinates
+    private int[] rows = new int[64];
+    private int[] columns = new int[64];
+    private long[] due = new long[64];
+    private int head;
+    private int size;
+    private boolean shifted; // rows were inserted or removed since the oldest pending flash
+
+    private TickFlash(JTable table) {
+        this.table = table;
+        this.timer = new Timer((int) FLASH_MILLIS, this);
+        timer.setRepeats(false);
+    }
+
+    // Once per table; the renderers of all its flashing columns share it
+    public static void attach(JTable table) {
+        if (table.getClientProperty(KEY) != null) return;
+        TickFlash flash = new TickFlash(table);
+        table.putClientProperty(KEY, flash);
+        table.getModel().addTableModelListener(flash);
+        table.addPropertyChangeListener("model", e -> {
+            ((TableModel) e.getOldValue()).removeTableModelListener(flash);
+            ((TableModel) e.getNewValue()).addTableModelListener(flash);
+        });
+    }
+
+    // ------------------------
+    // EVENTS (EDT)
+    // ------------------------
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (e.getType() != TableModelEvent.UPDATE) {
+            if (size > 0) shifted = true;
+            return;
+        }
+        if (e.getFirstRow() != e.getLastRow() || e.getFirstRow() < 0 || e.getColumn() == TableModelEvent.ALL_COLUMNS) {
+            return; // bulk changes repaint everything anyway
+        }
+        table.computeVisibleRect(visible);
+        if (!isVisible(e.getFirstRow())) return;
+        push(e.getFirstRow(), e.getColumn(), System.currentTimeMillis() + FLASH_MILLIS);
+        if (!timer.isRunning()) schedule(System.currentTimeMillis());
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long now = System.currentTimeMillis();
+        table.computeVisibleRect(visible);
+        if (shifted) {
+            // Pending cells may have moved; repaint the visible part once instead
+            table.repaint(visible);
+            shifted = false;
+            while (size > 0 && due[head] <= now) pop();
+        }
+        while (size > 0 && due[head] <= now) {
+            repaintCell(rows[head], columns[head]);
+            pop();
+        }
+        if (size > 0) schedule(now);
+    }
+
+    private void repaintCell(int modelRow, int modelColumn) {
+        if (!isVisible(modelRow)) return;
+        int column = table.convertColumnIndexToView(modelColumn);
+        if (column >= 0) table.repaint(table.getCellRect(table.convertRowIndexToView(modelRow), column, false));
+    }
+
+    // Against the last computed visible rect; rows have one fixed height in every table here
+    private boolean isVisible(int modelRow) {
+        if (modelRow >= table.getModel().getRowCount()) return false;
+        int row = table.convertRowIndexToView(modelRow);
+        if (row < 0) return false;
+        int y = row * table.getRowHeight();
+        return y + table.getRowHeight() > visible.y && y < visible.y + visible.height;
+    }
+
+    private void schedule(long now) {
+        timer.setInitialDelay((int) Math.max(1, due[head] - now));
+        timer.restart();
+    }
+
+    // ------------------------
+    // RING
+    // ------------------------
+    private void push(int row, int column, long at) {
+        if (size == rows.length) grow();
+        int tail = (head + size) % rows.length;
+        rows[tail] = row;
+        columns[tail] = column;
+        due[tail] = at;
+        size++;
+    }
+
+    private void pop() {
+        head = (head + 1) % rows.length;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = rows.length * 2;
+        int[] newRows = new int[capacity];
+        int[] newColumns = new int[capacity];
+        long[] newDue = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            int from = (head + i) % rows.length;
+            newRows[i] = rows[from];
+            newColumns[i] = columns[from];
+            newDue[i] = due[from];
+        }
+        rows = newRows;
+        columns = newColumns;
+        due = newDue;
+        head = 0;
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Arrays;
+
+/**
+ * Result of a {@link TickStore} range query: parallel time and price columns, oldest first.
+ */
+public final class TickSeries {
+
+    private final long[] times;
+    private final double[] prices;
+    private final int size;
+
+    private TickSeries(long[] times, double[] prices, int size) {
+        this.times = times;
+        this.prices = prices;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long time(int i) {
+        return times[i];
+    }
+
+    public double price(int i) {
+        return prices[i];
+    }
+
+    static final class Builder {
+        private long[] times = new long[64];
+        private double[] prices = new double[64];
+        private int size;
+
+        void add(long time, double price) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            times[size] = time;
+            prices[size] = price;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long lastTime() {
+            return times[size - 1];
+        }
+
+        TickSeries build() {
+            return new TickSeries(times, prices, size);
+        }
+    }
+}
@@ -0,0 +1,611 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only price history kept in segment files, one series per symbol.
+ *
+ * Every segment is a pair of column files: {@code .ts} holds timestamps and {@code .px}
+ * holds prices (fixed point, 4 decimals). Both columns are delta encoded as zigzag
+ * varints, and a sparse index every {@value #INDEX_STRIDE} ticks lets range queries
+ * start decoding close to {@code from}. A segment rolls over when either column fills.
+ *
+ * Only the segment a symbol is writing to (its tail) is memory-mapped, and at most
+ * maxMapped tails at once; past that the tail mapped longest ago is released and mapped
+ * again on its symbol's next tick. A full segment is sealed: trimmed to the bytes it used
+ * and unmapped, and from then on read with plain file reads. Each new segment is sized
+ * from the rate its symbol filled the previous one, to hold about an hour of ticks
+ * (at least {@value #MIN_SEGMENT_BYTES} bytes, at most segmentBytes). Sealed segments
+ * whose last tick is older than the retention are deleted.
+ *
+ * Each symbol's timestamps never go backwards, across segments too: a tick stamped
+ * before the last one written (a clock step back) is clamped to that time.
+ *
+ * There is one writer (the price engine thread); readers can query concurrently.
+ *
+ * Off unless -Dstocks.ticks.dir is set. Other system properties:
+ * stocks.ticks.segmentBytes (default 4 MiB), stocks.ticks.maxMapped (default 1024; keep
+ * it above the number of symbols, or the rest remap their tail on every tick),
+ * stocks.ticks.retainHours (default 168, 0 keeps everything).
+ */
+public final class TickStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x5449434B; // "TICK"
+    private static final int HEADER_BYTES = 64;
+    private static final int MAX_SYMBOL_BYTES = HEADER_BYTES - 10;
+    private static final int INDEX_STRIDE = 128;
+    private static final int MAX_VARINT_BYTES = 10;
+    private static final double PRICE_SCALE = 10_000.0;
+    private static final int MIN_SEGMENT_BYTES = 16 << 10;
+    private static final long SEGMENT_MILLIS = TimeUnit.HOURS.toMillis(1); // span a new segment is sized for
+
+    // sun.misc.Unsafe.invokeCleaner, to unmap a buffer now rather than when it is collected
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null; // mappings are then released by the GC
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private static TickStore shared;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxMapped;
+    private final long retainMillis;
+    private final ConcurrentHashMap<String, SymbolLog> logs = new ConcurrentHashMap<>();
+    private final ArrayDeque<Segment> mapped = new ArrayDeque<>(); // guarded by this; oldest mapping first
+
+    public TickStore(Path dir, int segmentBytes, int maxMapped, long retainMillis) throws IOException {
+        if (segmentBytes < HEADER_BYTES + 2 * MAX_VARINT_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        if (maxMapped < 1) {
+            throw new IllegalArgumentException("maxMapped must be at least 1: " + maxMapped);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxMapped = maxMapped;
+        this.retainMillis = retainMillis;
+        Files.createDirectories(dir);
+        loadExisting();
+    }
+
+    // The store under -Dstocks.ticks.dir, or null when tick history is off (the default)
+    public static synchronized TickStore shared() {
+        if (shared == null) {
+            String dir = System.getProperty("stocks.ticks.dir");
+            if (dir == null || dir.isBlank()) return null;
+            try {
+                shared = new TickStore(
+                        Paths.get(dir),
+                        Integer.getInteger("stocks.ticks.segmentBytes", 4 << 20),
+                        Integer.getInteger("stocks.ticks.maxMapped", 1024),
+                        TimeUnit.HOURS.toMillis(Long.getLong("stocks.ticks.retainHours", 24 * 7)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open tick store", e);
+            }
+        }
+        return shared;
+    }
+
+    // ------------------------
+    // WRITE
+    // ------------------------
+    public synchronized void append(String symbol, long timeMillis, double price) {
+        log(symbol).append(timeMillis, Math.round(price * PRICE_SCALE));
+    }
+
+    // Feeds every engine tick into the store; symbol lookups are resolved once
+    public PriceEngine.TickListener listenerFor(PriceEngine engine) {
+        SymbolLog[] byId = new SymbolLog[engine.symbolCount()];
+        for (int i = 0; i < byId.length; i++) {
+            byId[i] = log(engine.symbol(i));
+        }
+        return (timeMillis, prices) -> {
+            synchronized (this) {
+                for (int i = 0; i < byId.length; i++) {
+                    byId[i].append(timeMillis, Math.round(prices[i] * PRICE_SCALE));
+                }
+            }
+        };
+    }
+
+    private SymbolLog log(String symbol) {
+        return logs.computeIfAbsent(symbol, s -> new SymbolLog(s, fileStem(s)));
+    }
+
+    // Maps a tail for writing; past maxMapped the oldest mapping is released first
+    private void map(Segment segment) {
+        while (mapped.size() >= maxMapped) {
+            mapped.poll().unmap();
+        }
+        try {
+            segment.map();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map tick segment for " + segment.symbol, e);
+        }
+        mapped.add(segment);
+    }
+
+    // ------------------------
+    // READ
+    // ------------------------
+    /**
+     * Ticks with from <= time <= to, oldest first. Stops after limit ticks, though never
+     * in the middle of one timestamp, so the next page can start at the last time + 1.
+     */
+    public TickSeries range(String symbol, long from, long to, int limit) {
+        SymbolLog log = logs.get(symbol);
+        TickSeries.Builder out = new TickSeries.Builder();
+        if (log == null || from > to) return out.build();
+
+        for (Segment segment : log.segments) {
+            int count = segment.count;
+            if (count == 0 || segment.firstTs > to || segment.lastTs < from) continue;
+            if (out.size() >= limit && segment.firstTs > out.lastTime()) break;
+            try {
+                segment.read(from, to, count, limit, out);
+            } catch (NoSuchFileException e) {
+                // deleted by retention while we were reading; its ticks are gone
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read ticks of " + symbol, e);
+            }
+        }
+        return out.build();
+    }
+
+    public long count(String symbol) {
+        SymbolLog log = logs.get(symbol);
+        if (log == null) return 0;
+        long total = 0;
+        for (Segment segment : log.segments) total += segment.count;
+        return total;
+    }
+
+    public int segmentCount(String symbol) {
+        SymbolLog log = logs.get(symbol);
+        return log == null ? 0 : log.segments.size();
+    }
+
+    // Releases every mapping; a later append maps its tail again
+    @Override
+    public synchronized void close() {
+        while (!mapped.isEmpty()) {
+            mapped.poll().unmap();
+        }
+    }
+
+    // ------------------------
+    // RECOVERY
+    // ------------------------
+    private void loadExisting() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.ts")) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(Path::toString));
+        for (Path tsFile : files) {
+            String name = tsFile.getFileName().toString();
+            int dash = name.lastIndexOf('-');
+            String stem = name.substring(0, dash);
+            int seq = Integer.parseInt(name.substring(dash + 1, name.length() - 3));
+            Segment segment = Segment.open(tsFile, dir.resolve(stem + "-" + seqName(seq) + ".px"), seq);
+            SymbolLog log = logs.computeIfAbsent(segment.symbol, s -> new SymbolLog(s, stem));
+            log.segments.add(segment);
+            log.nextSeq = Math.max(log.nextSeq, seq + 1);
+            if (segment.count > 0) log.lastTs = Math.max(log.lastTs, segment.lastTs);
+        }
+        long now = System.currentTimeMillis();
+        for (SymbolLog log : logs.values()) {
+            // Everything before the tail is sealed; older versions left them full size
+            List<Segment> segments = log.segments;
+            for (int i = 0; i < segments.size() - 1; i++) {
+                segments.get(i).seal();
+            }
+            log.dropExpired(now);
+        }
+    }
+
+    // Hash suffix keeps symbols like BRK.B and BRK_B apart on disk
+    private static String fileStem(String symbol) {
+        return symbol.replaceAll("[^A-Za-z0-9]", "_") + "_" + Integer.toHexString(symbol.hashCode());
+    }
+
+    private static String seqName(int seq) {
+        return String.format("%06d", seq);
+    }
+
+    // ------------------------
+    // PER-SYMBOL LOG
+    // ------------------------
+    private final class SymbolLog {
+        final String symbol;
+        final String stem;
+        final List<Segment> segments = new CopyOnWriteArrayList<>();
+        int nextSeq;
+        long lastTs; // of the whole series, carried over when a segment rolls
+
+        SymbolLog(String symbol, String stem) {
+            this.symbol = symbol;
+            this.stem = stem;
+        }
+
+        // Caller holds the store's lock
+        void append(long timeMillis, long fixedPrice) {
+            Segment tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (tail == null || tail.sealed || !tail.hasRoom()) {
+                tail = roll(tail, timeMillis);
+            } else if (!tail.isMapped()) {
+                map(tail);
+            }
+            long t = Math.max(timeMillis, lastTs); // keep the series monotonic for range search
+            tail.append(t, fixedPrice);
+            lastTs = t;
+        }
+
+        private Segment roll(Segment previous, long timeMillis) {
+            int bytes = Math.min(MIN_SEGMENT_BYTES, segmentBytes);
+            if (previous != null) {
+                // Enough for SEGMENT_MILLIS at the rate the previous segment filled
+                long span = Math.max(1, previous.lastTs - previous.firstTs);
+                long used = Math.max(previous.usedTsBytes(), previous.usedPxBytes());
+                bytes = (int) Math.min(segmentBytes, Math.max(MIN_SEGMENT_BYTES, used * SEGMENT_MILLIS / span));
+                if (!previous.sealed) {
+                    if (previous.isMapped()) mapped.remove(previous);
+                    previous.seal();
+                }
+                dropExpired(timeMillis);
+            }
+            int seq = nextSeq++;
+            try {
+                Segment segment = Segment.create(
+                        dir.resolve(stem + "-" + seqName(seq) + ".ts"),
+                        dir.resolve(stem + "-" + seqName(seq) + ".px"),
+                        seq, symbol, bytes);
+                segments.add(segment);
+                map(segment);
+                return segment;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create tick segment for " + symbol, e);
+            }
+        }
+
+        // Deletes sealed segments, oldest first, whose last tick is past the retention
+        void dropExpired(long now) {
+            if (retainMillis <= 0) return;
+            for (Segment segment : segments) {
+                if (!segment.sealed || segment.lastTs >= now - retainMillis) break;
+                segments.remove(segment);
+                try {
+                    Files.deleteIfExists(segment.tsFile);
+                    Files.deleteIfExists(segment.pxFile);
+                } catch (IOException e) {
+                    System.out.println("Could not delete tick segment " + segment.tsFile + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ------------------------
+    // SEGMENT
+    // ------------------------
+    private static final class Segment {
+        final String symbol;
+        final int seq;
+        final Path tsFile;
+        final Path pxFile;
+        final int capacity;
+
+        // Only while this is a mapped tail; readers hold this segment's lock while they use them
+        private MappedByteBuffer ts;
+        private MappedByteBuffer px;
+        boolean sealed; // written by the writer only
+
+        // Published to readers through the volatile count
+        volatile int count;
+        volatile long lastTs;
+        long firstTs;
+
+        // Writer state; a reader that has read count sees at least the positions of those ticks
+        private int tsPos = HEADER_BYTES;
+        private int pxPos = HEADER_BYTES;
+        private long lastPx;
+
+        // Sparse index: value before each stride entry plus where that entry starts
+        private long[] idxTs = new long[16];
+        private long[] idxPrevTs = new long[16];
+        private long[] idxPrevPx = new long[16];
+        private int[] idxTsPos = new int[16];
+        private int[] idxPxPos = new int[16];
+        private volatile int idxCount;
+
+        private Segment(String symbol, int seq, Path tsFile, Path pxFile, int capacity) {
+            this.symbol = symbol;
+            this.seq = seq;
+            this.tsFile = tsFile;
+            this.pxFile = pxFile;
+            this.capacity = capacity;
+        }
+
+        // Creates the files and writes the headers; the store maps the segment afterwards
+        static Segment create(Path tsFile, Path pxFile, int seq, String symbol, int bytes) throws IOException {
+            byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_SYMBOL_BYTES) throw new IllegalArgumentException("Symbol too long: " + symbol);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(0, MAGIC);
+            header.putInt(4, 0);
+            header.putShort(8, (short) name.length);
+            header.put(10, name);
+            write(tsFile, header, bytes);
+            write(pxFile, ByteBuffer.allocate(HEADER_BYTES).putInt(0, MAGIC), bytes);
+            return new Segment(symbol, seq, tsFile, pxFile, bytes);
+        }
+
+        // Reads the header and rebuilds the index with plain reads; nothing stays mapped
+        static Segment open(Path tsFile, Path pxFile, int seq) throws IOException {
+            ByteBuffer ts = readBytes(tsFile, 0, (int) Files.size(tsFile));
+            ByteBuffer px = readBytes(pxFile, 0, (int) Files.size(pxFile));
+            if (ts.getInt(0) != MAGIC || px.getInt(0) != MAGIC) {
+                throw new IOException("Not a tick segment: " + tsFile);
+            }
+            byte[] name = new byte[ts.getShort(8)];
+            ts.get(10, name);
+            Segment segment = new Segment(new String(name, StandardCharsets.UTF_8), seq, tsFile, pxFile,
+                    Math.min(ts.capacity(), px.capacity()));
+            segment.replay(ts, px, ts.getInt(4));
+            return segment;
+        }
+
+        private static void write(Path file, ByteBuffer header, int bytes) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(bytes);
+                raf.getChannel().write(header, 0);
+            }
+        }
+
+        private static ByteBuffer readBytes(Path file, int from, int to) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(Math.max(0, to - from));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (buf.hasRemaining() && channel.read(buf, from + buf.position()) >= 0) {
+                    // a trimmed file ends early; the decoder stops at count anyway
+                }
+            }
+            return buf;
+        }
+
+        boolean isMapped() {
+            return ts != null;
+        }
+
+        int usedTsBytes() {
+            return tsPos;
+        }
+
+        int usedPxBytes() {
+            return pxPos;
+        }
+
+        void map() throws IOException {
+            MappedByteBuffer newTs = mapFile(tsFile, capacity);
+            MappedByteBuffer newPx = mapFile(pxFile, capacity);
+            synchronized (this) {
+                ts = newTs;
+                px = newPx;
+            }
+        }
+
+        private static MappedByteBuffer mapFile(Path file, int bytes) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                if (raf.length() < bytes) raf.setLength(bytes);
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            }
+        }
+
+        // Writes the mapping back and releases it; no reader is using it while we hold the lock
+        synchronized void unmap() {
+            if (ts == null) return;
+            ts.force();
+            px.force();
+            release(ts);
+            release(px);
+            ts = null;
+            px = null;
+        }
+
+        // No more appends: unmapped and trimmed to the bytes in use
+        void seal() {
+            unmap();
+            sealed = true;
+            try {
+                trim(tsFile, tsPos);
+                trim(pxFile, pxPos);
+            } catch (IOException e) {
+                System.out.println("Could not trim tick segment " + tsFile + ": " + e.getMessage());
+            }
+        }
+
+        private static void trim(Path file, int bytes) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                if (raf.length() > bytes) raf.setLength(bytes);
+            }
+        }
+
+        private static void release(MappedByteBuffer buffer) {
+            if (INVOKE_CLEANER == null) return;
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException e) {
+                // left for the GC to unmap
+            }
+        }
+
+        boolean hasRoom() {
+            return capacity - tsPos >= MAX_VARINT_BYTES && capacity - pxPos >= MAX_VARINT_BYTES;
+        }
+
+        // t is never before the series' last timestamp; SymbolLog clamps it. The segment is mapped.
+        void append(long t, long fixedPrice) {
+            int n = count;
+            long prevTs = n == 0 ? 0 : lastTs; // deltas start from 0 in every segment
+            if (n % INDEX_STRIDE == 0) {
+                addIndexEntry(t, prevTs, lastPx);
+            }
+            tsPos = putVarLong(ts, tsPos, zigzag(t - prevTs));
+            pxPos = putVarLong(px, pxPos, zigzag(fixedPrice - lastPx));
+            if (n == 0) firstTs = t;
+            lastPx = fixedPrice;
+            lastTs = t;
+            ts.putInt(4, n + 1);
+            count = n + 1;
+        }
+
+        private void addIndexEntry(long t, long prevTs, long prevPx) {
+            int k = idxCount;
+            if (k == idxTs.length) {
+                int size = k * 2;
+                idxTs = Arrays.copyOf(idxTs, size);
+                idxPrevTs = Arrays.copyOf(idxPrevTs, size);
+                idxPrevPx = Arrays.copyOf(idxPrevPx, size);
+                idxTsPos = Arrays.copyOf(idxTsPos, size);
+                idxPxPos = Arrays.copyOf(idxPxPos, size);
+            }
+            idxTs[k] = t;
+            idxPrevTs[k] = prevTs;
+            idxPrevPx[k] = prevPx;
+            idxTsPos[k] = tsPos;
+            idxPxPos[k] = pxPos;
+            idxCount = k + 1;
+        }
+
+        private void replay(ByteBuffer ts, ByteBuffer px, int entries) {
+            long t = 0;
+            long p = 0;
+            int[] tp = {HEADER_BYTES};
+            int[] pp = {HEADER_BYTES};
+            for (int i = 0; i < entries; i++) {
+                if (i % INDEX_STRIDE == 0) {
+                    tsPos = tp[0];
+                    pxPos = pp[0];
+                    long nextT = t + unzigzag(getVarLong(ts, tp.clone()));
+                    addIndexEntry(nextT, t, p);
+                }
+                t += unzigzag(getVarLong(ts, tp));
+                p += unzigzag(getVarLong(px, pp));
+                if (i == 0) firstTs = t;
+            }
+            tsPos = tp[0];
+            pxPos = pp[0];
+            lastTs = t;
+            lastPx = p;
+            count = entries;
+        }
+
+        void read(long from, long to, int count, int limit, TickSeries.Builder out) throws IOException {
+            // Only index entries for ticks the caller can see
+            int entries = Math.min(idxCount, (count - 1) / INDEX_STRIDE + 1);
+            long[] idxTs = this.idxTs;
+
+            // Last index entry at or before 'from'
+            int k = Arrays.binarySearch(idxTs, 0, entries, from);
+            if (k < 0) k = -k - 2;
+            if (k < 0) k = 0;
+            // Step back over equal timestamps that spill into the previous stride
+            while (k > 0 && idxTs[k] >= from) k--;
+
+            int tsStart = idxTsPos[k];
+            int pxStart = idxPxPos[k];
+            synchronized (this) {
+                if (ts != null) {
+                    decode(ts.slice(tsStart, tsPos - tsStart), px.slice(pxStart, pxPos - pxStart),
+                            k * INDEX_STRIDE, count, idxPrevTs[k], idxPrevPx[k], from, to, limit, out);
+                    return;
+                }
+            }
+            // Sealed or released: read from the index entry to the end of what is written
+            decode(readBytes(tsFile, tsStart, tsPos), readBytes(pxFile, pxStart, pxPos),
+                    k * INDEX_STRIDE, count, idxPrevTs[k], idxPrevPx[k], from, to, limit, out);
+        }
+
+        private static void decode(ByteBuffer ts, ByteBuffer px, int first, int count, long t, long p,
+                                   long from, long to, int limit, TickSeries.Builder out) {
+            int[] tp = {0};
+            int[] pp = {0};
+            for (int i = first; i < count; i++) {
+                t += unzigzag(getVarLong(ts, tp));
+                p += unzigzag(getVarLong(px, pp));
+                if (t > to) break;
+                if (t < from) continue;
+                if (out.size() >= limit && t > out.lastTime()) break;
+                out.add(t, p / PRICE_SCALE);
+            }
+        }
+    }
+
+    // ------------------------
+    // ENCODING
+    // ------------------------
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int putVarLong(ByteBuffer buf, int pos, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf.put(pos++, (byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put(pos++, (byte) v);
+        return pos;
+    }
+
+    private static long getVarLong(ByteBuffer buf, int[] pos) {
+        long v = 0;
+        int shift = 0;
+        int p = pos[0];
+        byte b;
+        do {
+            b = buf.get(p++);
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        pos[0] = p;
+        return v;
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * Outcome of an atomic buy or sell in {@link DatabaseConnection}.
+ */
+public enum TradeResult {
+    FILLED,
+    INSUFFICIENT_FUNDS,
+    NOT_OWNED,
+    FAILED
+}
@@ -8,13 +8,19 @@
  * @author Narinemikey
  */
 public class Transaction extends javax.swing.JFrame {
-private String loggedInUsername;
+private UserSession session;
     public Transaction() {
         initComponents();
         setLocationRelativeTo(null);
         
     }
 
+    // Opened from Stock; Deposit and Withdraw get the same session
+    public Transaction(UserSession session) {
+        this();
+        this.session = session;
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -127,7 +133,7 @@ private String loggedInUsername;
 
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
 
-    Deposit depositFrame = new Deposit(loggedInUsername);
+    Deposit depositFrame = new Deposit(session);
     depositFrame.setVisible(true);
 
 
@@ -135,7 +141,7 @@ private String loggedInUsername;
     }//GEN-LAST:event_jButton1ActionPerformed
 
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
-        Withdraw withdrawFrame = new Withdraw();
+        Withdraw withdrawFrame = new Withdraw(session);
         withdrawFrame.setVisible(true);
             this.dispose();
     }//GEN-LAST:event_jButton2ActionPerformed
@@ -0,0 +1,164 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The logged-in user's account, loaded once at login and shared by every frame.
+ *
+ * Login opens the session off the EDT: one balance query and one positions query.
+ * After that DatabaseConnection writes every committed balance change straight into
+ * the session (the trades read the new amount back with RETURNING), and holdings
+ * come from the write-through {@link PositionCache}. Refreshing the Stock, Deposit
+ * or Withdraw screens therefore needs no balance query at all.
+ *
+ * Balance writes commit under the same per-user lock the trades commit under, so the
+ * cached value follows commit order. Each session also keeps a {@link ValuationEngine}
+ * on the live prices; trades pass their committed position to it.
+ *
+ * Reads never query the database while holding that lock (a trade waiting for it holds
+ * a pooled connection). A balance read is only cached if no write landed while it ran,
+ * and a failed read is not cached at all. The EDT never reads through to the database:
+ * it uses {@link #cachedBalance()} or {@link #showBalance(Consumer)}.
+ */
+public final class UserSession {
+
+    private static final Map<String, UserSession> OPEN = new ConcurrentHashMap<>();
+    private static volatile UserSession current;
+
+    private final String username;
+    private volatile double balance;
+    private volatile boolean balanceLoaded;
+    private long balanceVersion; // guarded by lockFor(username); bumped by every balance write
+    private ValuationEngine valuation;
+
+    private UserSession(String username) {
+        this.username = username;
+    }
+
+    // After a successful checkLogin; runs on a background thread because it reads the account
+    public static UserSession open(String username) {
+        UserSession session = OPEN.computeIfAbsent(username, UserSession::new);
+        session.balance();
+        try {
+            session.valuation(); // warms the holdings
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // not cached; loaded again on first use
+        }
+        current = session;
+        return session;
+    }
+
+    // The session of the user logged in to the GUI, or null before login
+    public static UserSession current() {
+        return current;
+    }
+
+    public static UserSession forUser(String username) {
+        return username == null ? null : OPEN.get(username);
+    }
+
+    // Logout: the next login for this user starts from the database again
+    public void close() {
+        OPEN.remove(username, this);
+        if (current == this) current = null;
+        synchronized (PositionCache.shared().lockFor(username)) {
+            if (valuation != null) valuation.detach();
+        }
+        PositionCache.shared().invalidate(username);
+    }
+
+    public String username() {
+        return username;
+    }
+
+    // ------------------------
+    // READS
+    // ------------------------
+    public double balance() {
+        if (balanceLoaded) return balance;
+        Object lock = PositionCache.shared().lockFor(username);
+        long version;
+        synchronized (lock) {
+            if (balanceLoaded) return balance;
+            version = balanceVersion;
+        }
+        double loaded;
+        try {
+            loaded = DatabaseConnection.readBalance(username);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return balance; // not cached; the next read tries again
+        }
+        synchronized (lock) {
+            if (balanceLoaded) return balance; // a write landed meanwhile and is newer
+            if (balanceVersion == version) {
+                balance = loaded;
+                balanceLoaded = true;
+            }
+            return loaded;
+        }
+    }
+
+    // The last balance known to the session, without a query; for the EDT
+    public double cachedBalance() {
+        return balance;
+    }
+
+    // Shows the cached balance now; if it isn't loaded (the read at login failed) it is read
+    // on the DataPipeline and shown again. Call on the EDT.
+    public void showBalance(Consumer<Double> show) {
+        show.accept(balance);
+        if (!balanceLoaded) DataPipeline.shared().submit(this::balance, show);
+    }
+
+    public Map<String, Position> positions() {
+        return PositionCache.shared().positions(username);
+    }
+
+    public List<HoldingRow> holdings(List<StockRow> market) {
+        return DatabaseConnection.holdings(username, market);
+    }
+
+    // Built from the cached positions on first use, then kept current by ticks and trades.
+    // The positions are loaded before taking the lock; built only if no trade replaced them since
+    public ValuationEngine valuation() {
+        Object lock = PositionCache.shared().lockFor(username);
+        synchronized (lock) {
+            if (valuation != null) return valuation;
+        }
+        while (true) {
+            Map<String, Position> loaded = positions();
+            synchronized (lock) {
+                if (valuation != null) return valuation;
+                if (PositionCache.shared().cached(username) == loaded) {
+                    valuation = new ValuationEngine(PriceEngine.shared(), loaded);
+                    valuation.attach();
+                    return valuation;
+                }
+            }
+        }
+    }
+
+    // ------------------------
+    // WRITES (from DatabaseConnection)
+    // ------------------------
+    // Called with PositionCache.lockFor(username) held, after the new balance has committed
+    static void balanceCommitted(String username, double amount) {
+        UserSession session = OPEN.get(username);
+        if (session != null) {
+            session.balance = amount;
+            session.balanceLoaded = true;
+            session.balanceVersion++;
+        }
+    }
+
+    // Called with PositionCache.lockFor(username) held, after the trade has committed
+    static void positionCommitted(String username, Position position) {
+        UserSession session = OPEN.get(username);
+        if (session != null && session.valuation != null) {
+            session.valuation.positionChanged(position);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Live market value, unrealized P&L and day change of one user's positions.
+ *
+ * Listens to the price engine. A tick only touches the symbols the user holds, and
+ * each one that moved adjusts the totals by quantity * price delta, so a tick costs
+ * O(held symbols) no matter how many symbols the market has. A trade replaces that
+ * one symbol's contribution. Every {@value #RESUM_TICKS} ticks, and when a new trading
+ * day starts, the totals are summed again from scratch so rounding can't build up.
+ *
+ * Listeners get the new totals on the engine thread after every tick that moved a
+ * held price; UI code must hand them to the EDT itself.
+ */
+public final class ValuationEngine implements PriceEngine.TickListener {
+
+    private static final int RESUM_TICKS = 1024;
+
+    public record Totals(double marketValue, double costBasis, double dayChange) {
+        public double unrealized() {
+            return marketValue - costBasis;
+        }
+    }
+
+    public record Valuation(String symbol, long quantity, double price, double marketValue,
+                            double costBasis, double dayChange) {
+        public double unrealized() {
+            return marketValue - costBasis;
+        }
+    }
+
+    private final PriceEngine engine;
+    private final List<Consumer<Totals>> listeners = new CopyOnWriteArrayList<>();
+
+    // Indexed by engine symbol id; price is only kept current for held symbols
+    private final long[] quantity;
+    private final double[] cost;
+    private final double[] price;
+    private final double[] open;
+    private int[] held = new int[0];
+    private int tradingDay;
+
+    private double marketValue;
+    private double costBasis;
+    private double dayChange;
+    private int ticksSinceResum;
+    private volatile Totals totals;
+
+    public ValuationEngine(PriceEngine engine, Map<String, Position> positions) {
+        this.engine = engine;
+        int n = engine.symbolCount();
+        quantity = new long[n];
+        cost = new double[n];
+        price = engine.copyPrices(null);
+        open = engine.copyOpenPrices(null);
+        tradingDay = engine.tradingDay();
+        for (Position p : positions.values()) {
+            int id = engine.idOf(p.symbol());
+            if (id < 0) continue;
+            quantity[id] = p.quantity();
+            cost[id] = p.costBasis();
+        }
+        rebuildHeld();
+        resum();
+    }
+
+    // Start following the engine's ticks
+    public void attach() {
+        engine.addListener(this);
+    }
+
+    public void detach() {
+        engine.removeListener(this);
+    }
+
+    public void addListener(Consumer<Totals> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Totals> listener) {
+        listeners.remove(listener);
+    }
+
+    public Totals totals() {
+        return totals;
+    }
+
+    // ------------------------
+    // UPDATES
+    // ------------------------
+    @Override
+    public void onTick(long timeMillis, double[] prices) {
+        Totals changed;
+        synchronized (this) {
+            // Called inside PriceEngine.step, so these engine calls don't block
+            if (engine.tradingDay() != tradingDay) {
+                tradingDay = engine.tradingDay();
+                engine.copyOpenPrices(open);
+                for (int id : held) price[id] = prices[id];
+                resum();
+                changed = totals;
+            } else {
+                boolean moved = false;
+                for (int id : held) {
+                    double delta = prices[id] - price[id];
+                    if (delta == 0) continue;
+                    price[id] = prices[id];
+                    marketValue += quantity[id] * delta;
+                    dayChange += quantity[id] * delta;
+                    moved = true;
+                }
+                if (!moved) return;
+                if (++ticksSinceResum >= RESUM_TICKS) {
+                    resum();
+                } else {
+                    publishTotals();
+                }
+                changed = totals;
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    // A trade committed; replaces this symbol's share of the totals
+    public void positionChanged(Position position) {
+        int id = engine.idOf(position.symbol());
+        if (id < 0) return;
+        double current = engine.price(position.symbol()); // before our lock: the engine thread takes them the other way round
+        Totals changed;
+        synchronized (this) {
+            marketValue -= quantity[id] * price[id];
+            costBasis -= cost[id];
+            dayChange -= quantity[id] * (price[id] - open[id]);
+
+            boolean wasHeld = quantity[id] > 0;
+            quantity[id] = position.quantity();
+            cost[id] = position.quantity() > 0 ? position.costBasis() : 0.0;
+            price[id] = current;
+
+            marketValue += quantity[id] * price[id];
+            costBasis += cost[id];
+            dayChange += quantity[id] * (price[id] - open[id]);
+            if (wasHeld != quantity[id] > 0) rebuildHeld();
+            publishTotals();
+            changed = totals;
+        }
+        notifyListeners(changed);
+    }
+
+    // ------------------------
+    // READS
+    // ------------------------
+    public synchronized Valuation valuation(String symbol) {
+        int id = engine.idOf(symbol);
+        if (id < 0 || quantity[id] == 0) return null;
+        return new Valuation(symbol, quantity[id], price[id], quantity[id] * price[id], cost[id],
+                quantity[id] * (price[id] - open[id]));
+    }
+
+    // Held symbols, in engine order
+    public synchronized List<Valuation> valuations() {
+        Valuation[] rows = new Valuation[held.length];
+        for (int i = 0; i < held.length; i++) {
+            int id = held[i];
+            rows[i] = new Valuation(engine.symbol(id), quantity[id], price[id], quantity[id] * price[id], cost[id],
+                    quantity[id] * (price[id] - open[id]));
+        }
+        return List.of(rows);
+    }
+
+    // ------------------------
+    // INTERNALS (under this)
+    // ------------------------
+    private void rebuildHeld() {
+        int count = 0;
+        int[] ids = new int[quantity.length];
+        for (int id = 0; id < quantity.length; id++) {
+            if (quantity[id] > 0) ids[count++] = id;
+        }
+        held = Arrays.copyOf(ids, count);
+    }
+
+    private void resum() {
+        marketValue = 0;
+        costBasis = 0;
+        dayChange = 0;
+        for (int id : held) {
+            marketValue += quantity[id] * price[id];
+            costBasis += cost[id];
+            dayChange += quantity[id] * (price[id] - open[id]);
+        }
+        ticksSinceResum = 0;
+        publishTotals();
+    }
+
+    private void publishTotals() {
+        totals = new Totals(marketValue, costBasis, dayChange);
+    }
+
+    private void notifyListeners(Totals changed) {
+        for (Consumer<Totals> listener : listeners) {
+            listener.accept(changed);
+        }
+    }
+}
@@ -18,6 +18,22 @@ public class Withdraw extends javax.swing.JFrame {
 
     }
 
+    private UserSession session;
+
+    // Opened from Transaction with the logged-in session
+    public Withdraw(UserSession session) {
+        this();
+        this.session = session;
+        showBalance();
+    }
+
+    // Balance next to BALANCE:, cached in the session since login
+    private void showBalance() {
+        if (session != null) {
+            session.showBalance(balance -> jLabel3.setText("₱ " + String.format("%.2f", balance)));
+        }
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always